@@ -1,6 +1,5 @@
 package jenkins.plugins.slack;
 
-import hudson.EnvVars;
 import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
@@ -9,32 +8,36 @@ import hudson.model.Cause;
 import hudson.model.CauseAction;
 import hudson.model.Hudson;
 import hudson.model.Result;
-import hudson.model.Run;
-import hudson.scm.ChangeLogSet;
-import hudson.scm.ChangeLogSet.AffectedFile;
-import hudson.scm.ChangeLogSet.Entry;
 import hudson.tasks.test.AbstractTestResultAction;
 import hudson.triggers.SCMTrigger;
 import hudson.util.LogTaskListener;
 import org.apache.commons.lang.StringUtils;
 
-import java.io.IOException;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 import static java.util.logging.Level.INFO;
-import static java.util.logging.Level.SEVERE;
 
 @SuppressWarnings("rawtypes")
 public class ActiveNotifier implements FineGrainedNotifier {
 
     private static final Logger logger = Logger.getLogger(SlackListener.class.getName());
 
+    /**
+     * How many upstream builds are looked at for changes when the build itself has none.
+     */
+    static final int MAX_UPSTREAM_DEPTH = Integer.getInteger(ActiveNotifier.class.getName() + ".maxUpstreamDepth", 10);
+
+    private static final List<String> NO_CHANGES = Collections.singletonList("No Changes.");
+
     SlackNotifier notifier;
     BuildListener listener;
+    /** variables of the build being notified about, shared by all its messages */
+    private BuildVariableResolver variables;
 
     public ActiveNotifier(SlackNotifier notifier, BuildListener listener) {
         super();
@@ -43,7 +46,14 @@ public class ActiveNotifier implements FineGrainedNotifier {
     }
 
     private SlackService getSlack(AbstractBuild r) {
-        return notifier.newSlackService(r, listener);
+        return notifier.newSlackService(getVariables(r));
+    }
+
+    private BuildVariableResolver getVariables(AbstractBuild r) {
+        if (variables == null || variables.getBuild() != r) {
+            variables = new BuildVariableResolver(r, listener);
+        }
+        return variables;
     }
 
     public void deleted(AbstractBuild r) {
@@ -58,7 +68,7 @@ public class ActiveNotifier implements FineGrainedNotifier {
         if (causeAction != null) {
             Cause scmCause = causeAction.findCause(SCMTrigger.SCMTriggerCause.class);
             if (scmCause == null) {
-                MessageBuilder message = new MessageBuilder(notifier, build);
+                MessageBuilder message = new MessageBuilder(notifier, build, null, getVariables(build));
                 message.append(causeAction.getShortDescription());
                 notifyStart(build, message.appendOpenLink().toString());
                 // Cause was found, exit early to prevent double-message
@@ -75,12 +85,11 @@ public class ActiveNotifier implements FineGrainedNotifier {
     }
 
     private void notifyStart(AbstractBuild build, String message) {
-        AbstractProject<?, ?> project = build.getProject();
-        AbstractBuild<?, ?> previousBuild = project.getLastBuild().getPreviousCompletedBuild();
-        if (previousBuild == null) {
-            getSlack(build).publish(message, "good");
+        Result previousResult = BuildTransitionIndex.of(build.getProject()).before(build).getResult();
+        if (previousResult == null) {
+            getSlack(build).publishAsync(message, "good");
         } else {
-            getSlack(build).publish(message, getBuildColor(previousBuild));
+            getSlack(build).publishAsync(message, BuildTransition.colorOf(previousResult));
         }
     }
 
@@ -88,13 +97,9 @@ public class ActiveNotifier implements FineGrainedNotifier {
     }
 
     public void completed(AbstractBuild r) {
-        AbstractProject<?, ?> project = r.getProject();
-        Result result = r.getResult();
-        AbstractBuild<?, ?> previousBuild = project.getLastBuild();
-        do {
-            previousBuild = previousBuild.getPreviousCompletedBuild();
-        } while (previousBuild != null && previousBuild.getResult() == Result.ABORTED);
-        Result previousResult = (previousBuild != null) ? previousBuild.getResult() : Result.SUCCESS;
+        BuildTransition transition = BuildTransition.of(r);
+        Result result = transition.getResult();
+        Result previousResult = transition.getPreviousResult();
         if ((result == Result.ABORTED && notifier.getNotifyAborted())
                 || (result == Result.FAILURE //notify only on single failed build
                     && previousResult != Result.FAILURE
@@ -108,100 +113,157 @@ public class ActiveNotifier implements FineGrainedNotifier {
                     && notifier.getNotifyBackToNormal())
                 || (result == Result.SUCCESS && notifier.getNotifySuccess())
                 || (result == Result.UNSTABLE && notifier.getNotifyUnstable())) {
-            getSlack(r).publish(getBuildStatusMessage(r, notifier.includeTestSummary(),
-                    notifier.includeCustomMessage()), getBuildColor(r));
+            // messages are rendered here, on the build thread, and only the posting is handed off
+            if (notifier.getDescriptor().isCompoundMessage()) {
+                getSlack(r).publishAsync(getCompoundMessage(r, transition));
+                return;
+            }
+            getSlack(r).publishAsync(getBuildStatusMessage(r, transition, notifier.includeTestSummary(),
+                    notifier.includeCustomMessage()), transition.getColor());
             if (notifier.getCommitInfoChoice().showAnything()) {
-                getSlack(r).publish(getCommitList(r), getBuildColor(r));
+                List<SlackPayload.Attachment> attachments = new ArrayList<SlackPayload.Attachment>();
+                addCommitList(attachments, getCommitList(r), transition.getColor());
+                getSlack(r).publishAsync(new SlackPayload(attachments));
             }
         }
     }
 
+    /**
+     * The status, test summary and commits of a completed build as the attachments of a single message.
+     */
+    SlackPayload getCompoundMessage(AbstractBuild r, BuildTransition transition) {
+        String color = transition.getColor();
+        List<SlackPayload.Attachment> attachments = new ArrayList<SlackPayload.Attachment>();
+        attachments.add(new SlackPayload.Attachment(
+                getBuildStatusMessage(r, transition, false, notifier.includeCustomMessage()), color));
+        if (notifier.includeTestSummary()) {
+            attachments.add(new SlackPayload.Attachment(MessageBuilder.getTestSummary(r), color));
+        }
+        if (notifier.getCommitInfoChoice().showAnything()) {
+            addCommitList(attachments, getCommitList(r, false), color);
+        }
+        return new SlackPayload(attachments);
+    }
+
+    /**
+     * Long commit lists take several attachments, rather than one Slack could reject.
+     */
+    private static void addCommitList(List<SlackPayload.Attachment> attachments, List<String> parts, String color) {
+        for (String part : parts) {
+            attachments.add(new SlackPayload.Attachment(part, color));
+        }
+    }
+
     String getChanges(AbstractBuild r, boolean includeCustomMessage) {
         if (!r.hasChangeSetComputed()) {
             logger.info("No change set computed...");
             return null;
         }
-        ChangeLogSet changeSet = r.getChangeSet();
-        List<Entry> entries = new LinkedList<Entry>();
-        Set<AffectedFile> files = new HashSet<AffectedFile>();
-        for (Object o : changeSet.getItems()) {
-            Entry entry = (Entry) o;
-            logger.info("Entry " + o);
-            entries.add(entry);
-            files.addAll(entry.getAffectedFiles());
-        }
-        if (entries.isEmpty()) {
+        ChangeSetSummary summary = ChangeSetSummary.of(r.getChangeSet());
+        if (summary.isEmpty()) {
             logger.info("Empty change...");
             return null;
         }
-        Set<String> authors = new HashSet<String>();
-        for (Entry entry : entries) {
-            authors.add(entry.getAuthor().getDisplayName());
-        }
-        MessageBuilder message = new MessageBuilder(notifier, r);
+        MessageBuilder message = new MessageBuilder(notifier, r, null, getVariables(r));
         message.append("Started by changes from ");
-        message.append(StringUtils.join(authors, ", "));
+        message.append(StringUtils.join(summary.getAuthors(), ", "));
+        if (summary.hasMoreAuthors()) {
+            message.append(" and others");
+        }
         message.append(" (");
-        message.append(files.size());
+        message.append(summary.getFileCount());
         message.append(" file(s) changed)");
         message.appendOpenLink();
+        List<Map.Entry<String, Integer>> directories = summary.getTopDirectories(ChangeSetSummary.TOP_DIRECTORIES);
+        if (!directories.isEmpty()) {
+            message.append("\nMost changed:");
+            for (Map.Entry<String, Integer> directory : directories) {
+                message.append(" " + directory.getKey() + " (" + directory.getValue() + ")");
+            }
+        }
         if (includeCustomMessage) {
             message.appendCustomMessage();
         }
         return message.toString();
     }
 
-    String getCommitList(AbstractBuild r) {
-        ChangeLogSet changeSet = r.getChangeSet();
-        List<Entry> entries = new LinkedList<Entry>();
-        for (Object o : changeSet.getItems()) {
-            Entry entry = (Entry) o;
-            logger.info("Entry " + o);
-            entries.add(entry);
+    List<String> getCommitList(AbstractBuild r) {
+        return getCommitList(r, true);
+    }
+
+    /**
+     * @param named whether the list starts with the name of the build; it always does when the commits
+     *              are those of an upstream build
+     * @return the parts of the list, see {@link CommitListRenderer}
+     */
+    List<String> getCommitList(AbstractBuild r, boolean named) {
+        List<String> commits = renderCommits(r, named);
+        if (!commits.isEmpty()) {
+            return commits;
         }
-        if (entries.isEmpty()) {
-            logger.info("Empty change...");
-            Cause.UpstreamCause c = (Cause.UpstreamCause)r.getCause(Cause.UpstreamCause.class);
-            if (c == null) {
-                return "No Changes.";
+        final Cause.UpstreamCause cause = (Cause.UpstreamCause) r.getCause(Cause.UpstreamCause.class);
+        if (cause == null) {
+            return NO_CHANGES;
+        }
+        final CommitInfoChoice commitInfoChoice = notifier.getCommitInfoChoice();
+        // the downstream builds of one upstream build all share its list
+        String key = CommitListCache.key(cause.getUpstreamProject(), cause.getUpstreamBuild(), commitInfoChoice);
+        return CommitListCache.get().get(key, new Callable<List<String>>() {
+            public List<String> call() {
+                return getUpstreamCommitList(cause);
             }
-            String upProjectName = c.getUpstreamProject();
-            int buildNumber = c.getUpstreamBuild();
-            AbstractProject project = Hudson.getInstance().getItemByFullName(upProjectName, AbstractProject.class);
-            AbstractBuild upBuild = (AbstractBuild)project.getBuildByNumber(buildNumber);
-            return getCommitList(upBuild);
-        }
-        Set<String> commits = new HashSet<String>();
-        for (Entry entry : entries) {
-            StringBuffer commit = new StringBuffer();
-            CommitInfoChoice commitInfoChoice = notifier.getCommitInfoChoice();
-            if (commitInfoChoice.showTitle()) {
-                commit.append(entry.getMsg());
+        });
+    }
+
+    /**
+     * Follows the chain of upstream builds until one of them has changes, at most {@link #MAX_UPSTREAM_DEPTH} deep.
+     */
+    private List<String> getUpstreamCommitList(Cause.UpstreamCause cause) {
+        for (int depth = 1; cause != null; depth++) {
+            if (depth > MAX_UPSTREAM_DEPTH) {
+                logger.info("No changes found in the last " + MAX_UPSTREAM_DEPTH + " upstream builds");
+                break;
             }
-            if (commitInfoChoice.showAuthor()) {
-                commit.append(" [").append(entry.getAuthor().getDisplayName()).append("]");
+            AbstractProject project =
+                    Hudson.getInstance().getItemByFullName(cause.getUpstreamProject(), AbstractProject.class);
+            AbstractBuild upBuild = project != null
+                    ? (AbstractBuild) project.getBuildByNumber(cause.getUpstreamBuild()) : null;
+            if (upBuild == null) {
+                logger.info("Upstream build " + cause.getUpstreamProject() + " #" + cause.getUpstreamBuild() + " is gone");
+                break;
             }
-            commits.add(commit.toString());
+            List<String> commits = renderCommits(upBuild, true);
+            if (!commits.isEmpty()) {
+                return commits;
+            }
+            cause = (Cause.UpstreamCause) upBuild.getCause(Cause.UpstreamCause.class);
         }
-        MessageBuilder message = new MessageBuilder(notifier, r);
-        message.append("Changes:\n- ");
-        message.append(StringUtils.join(commits, "\n- "));
-        return message.toString();
+        return NO_CHANGES;
     }
 
-    static String getBuildColor(AbstractBuild r) {
-        Result result = r.getResult();
-        if (result == Result.SUCCESS) {
-            return "good";
-        } else if (result == Result.FAILURE) {
-            return "danger";
-        } else {
-            return "warning";
+    /**
+     * @param named whether the list starts with the name of the build
+     * @return the parts of the list of the commits of the build, empty if it has none
+     */
+    private List<String> renderCommits(AbstractBuild r, boolean named) {
+        String header = named ? MessageBuilder.getName(r) : "";
+        List<String> commits = new CommitListRenderer(notifier.getCommitInfoChoice()).render(header, r.getChangeSet());
+        if (commits.isEmpty()) {
+            logger.info("Empty change...");
         }
+        return commits;
     }
 
     String getBuildStatusMessage(AbstractBuild r, boolean includeTestSummary, boolean includeCustomMessage) {
-        MessageBuilder message = new MessageBuilder(notifier, r);
+        return getBuildStatusMessage(r, null, includeTestSummary, includeCustomMessage);
+    }
+
+    /**
+     * @param transition transition of the completed build, null while it is running
+     */
+    String getBuildStatusMessage(AbstractBuild r, BuildTransition transition, boolean includeTestSummary,
+                                 boolean includeCustomMessage) {
+        MessageBuilder message = new MessageBuilder(notifier, r, transition, getVariables(r));
         message.appendStatusMessage();
         message.appendDuration();
         message.appendOpenLink();
@@ -226,63 +288,54 @@ public class ActiveNotifier implements FineGrainedNotifier {
                                     UNSTABLE_STATUS_MESSAGE = "Unstable",
                                     UNKNOWN_STATUS_MESSAGE = "Unknown";
         
-        private StringBuffer message;
+        /** enough for a status line with a link and a short custom message */
+        private static final int INITIAL_CAPACITY = 256;
+
+        private final StringBuilder message;
         private SlackNotifier notifier;
         private AbstractBuild build;
+        private BuildTransition transition;
+        private BuildVariableResolver variables;
 
         public MessageBuilder(SlackNotifier notifier, AbstractBuild build) {
+            this(notifier, build, null, new BuildVariableResolver(build, new LogTaskListener(logger, INFO)));
+        }
+
+        /**
+         * @param transition transition of the completed build, null while it is running
+         * @param variables resolves the variables of the custom message
+         */
+        public MessageBuilder(SlackNotifier notifier, AbstractBuild build, BuildTransition transition,
+                              BuildVariableResolver variables) {
             this.notifier = notifier;
-            this.message = new StringBuffer();
+            this.message = new StringBuilder(INITIAL_CAPACITY);
             this.build = build;
+            this.transition = transition;
+            this.variables = variables;
             startMessage();
         }
 
         public MessageBuilder appendStatusMessage() {
-            message.append(this.escape(getStatusMessage(build)));
+            escape(getStatusMessage(build, getTransition()), message);
             return this;
         }
 
-        static String getStatusMessage(AbstractBuild r) {
+        private BuildTransition getTransition() {
+            if (transition == null && !build.isBuilding()) {
+                transition = BuildTransition.of(build);
+            }
+            return transition;
+        }
+
+        static String getStatusMessage(AbstractBuild r, BuildTransition transition) {
             if (r.isBuilding()) {
                 return STARTING_STATUS_MESSAGE;
             }
-            Result result = r.getResult();
-            Result previousResult;
-            Run previousBuild = r.getProject().getLastBuild().getPreviousBuild();
-            Run previousSuccessfulBuild = r.getPreviousSuccessfulBuild();
-            boolean buildHasSucceededBefore = previousSuccessfulBuild != null;
-            
-            /*
-             * If the last build was aborted, go back to find the last non-aborted build.
-             * This is so that aborted builds do not affect build transitions.
-             * I.e. if build 1 was failure, build 2 was aborted and build 3 was a success the transition
-             * should be failure -> success (and therefore back to normal) not aborted -> success. 
-             */
-            Run lastNonAbortedBuild = previousBuild;
-            while(lastNonAbortedBuild != null && lastNonAbortedBuild.getResult() == Result.ABORTED) {
-                lastNonAbortedBuild = lastNonAbortedBuild.getPreviousBuild();
-            }
-            
-            
-            /* If all previous builds have been aborted, then use 
-             * SUCCESS as a default status so an aborted message is sent
-             */
-            if(lastNonAbortedBuild == null) {
-                previousResult = Result.SUCCESS;
-            } else {
-                previousResult = lastNonAbortedBuild.getResult();
-            }
-            
-            /* Back to normal should only be shown if the build has actually succeeded at some point.
-             * Also, if a build was previously unstable and has now succeeded the status should be 
-             * "Back to normal"
-             */
-            if (result == Result.SUCCESS
-                    && (previousResult == Result.FAILURE || previousResult == Result.UNSTABLE) 
-                    && buildHasSucceededBefore) {
+            Result result = transition.getResult();
+            if (transition.isBackToNormal()) {
                 return BACK_TO_NORMAL_STATUS_MESSAGE;
             }
-            if (result == Result.FAILURE && previousResult == Result.FAILURE) {
+            if (transition.isRepeatedFailure()) {
                 return STILL_FAILING_STATUS_MESSAGE;
             }
             if (result == Result.SUCCESS) {
@@ -304,23 +357,41 @@ public class ActiveNotifier implements FineGrainedNotifier {
         }
 
         public MessageBuilder append(String string) {
-            message.append(this.escape(string));
+            escape(string, message);
             return this;
         }
 
         public MessageBuilder append(Object string) {
-            message.append(this.escape(string.toString()));
+            escape(string.toString(), message);
+            return this;
+        }
+
+        public MessageBuilder append(int number) {
+            message.append(number);
             return this;
         }
 
         private MessageBuilder startMessage() {
-            message.append(this.escape(build.getProject().getFullDisplayName()));
-            message.append(" - ");
-            message.append(this.escape(build.getDisplayName()));
-            message.append(" ");
+            appendName(build, message);
             return this;
         }
 
+        /**
+         * The name of the build every message starts with.
+         */
+        static String getName(AbstractBuild build) {
+            StringBuilder name = new StringBuilder(64);
+            appendName(build, name);
+            return name.toString();
+        }
+
+        private static void appendName(AbstractBuild build, StringBuilder message) {
+            escape(build.getProject().getFullDisplayName(), message);
+            message.append(" - ");
+            escape(build.getDisplayName(), message);
+            message.append(' ');
+        }
+
         public MessageBuilder appendOpenLink() {
             String url = notifier.getBuildServerUrl() + build.getUrl();
             message.append(" (<").append(url).append("|Open>)");
@@ -329,66 +400,98 @@ public class ActiveNotifier implements FineGrainedNotifier {
 
         public MessageBuilder appendDuration() {
             message.append(" after ");
-            String durationString;
-            if(message.toString().contains(BACK_TO_NORMAL_STATUS_MESSAGE)){
-                durationString = createBackToNormalDurationString();
+            BuildTransition transition = getTransition();
+            if (transition != null && transition.isBackToNormal()) {
+                message.append(Util.getTimeSpanString(transition.getBackToNormalDuration()));
             } else {
-                durationString = build.getDurationString();
+                message.append(build.getDurationString());
             }
-            message.append(durationString);
             return this;
         }
 
         public MessageBuilder appendTestSummary() {
-            AbstractTestResultAction<?> action = this.build
-                    .getAction(AbstractTestResultAction.class);
-            if (action != null) {
-                int total = action.getTotalCount();
-                int failed = action.getFailCount();
-                int skipped = action.getSkipCount();
-                message.append("\nTest Status:\n");
-                message.append("\tPassed: " + (total - failed - skipped));
-                message.append(", Failed: " + failed);
-                message.append(", Skipped: " + skipped);
-            } else {
-                message.append("\nNo Tests found.");
-            }
+            message.append('\n').append(getTestSummary(build));
             return this;
         }
 
-        public MessageBuilder appendCustomMessage() {
-            String customMessage = notifier.getCustomMessage();
-            EnvVars envVars = new EnvVars();
-            try {
-                envVars = build.getEnvironment(new LogTaskListener(logger, INFO));
-            } catch (IOException e) {
-                logger.log(SEVERE, e.getMessage(), e);
-            } catch (InterruptedException e) {
-                logger.log(SEVERE, e.getMessage(), e);
+        static String getTestSummary(AbstractBuild r) {
+            AbstractTestResultAction<?> action = r.getAction(AbstractTestResultAction.class);
+            if (action == null) {
+                return "No Tests found.";
             }
-            message.append("\n");
-            message.append(envVars.expand(customMessage));
-            return this;
+            int total = action.getTotalCount();
+            int failed = action.getFailCount();
+            int skipped = action.getSkipCount();
+            return "Test Status:\n"
+                    + "\tPassed: " + (total - failed - skipped)
+                    + ", Failed: " + failed
+                    + ", Skipped: " + skipped;
         }
-        
-        private String createBackToNormalDurationString(){
-            Run previousSuccessfulBuild = build.getPreviousSuccessfulBuild();
-            long previousSuccessStartTime = previousSuccessfulBuild.getStartTimeInMillis();
-            long previousSuccessDuration = previousSuccessfulBuild.getDuration();
-            long previousSuccessEndTime = previousSuccessStartTime + previousSuccessDuration;
-            long buildStartTime = build.getStartTimeInMillis();
-            long buildDuration = build.getDuration();
-            long buildEndTime = buildStartTime + buildDuration;
-            long backToNormalDuration = buildEndTime - previousSuccessEndTime;
-            return Util.getTimeSpanString(backToNormalDuration);
+
+        public MessageBuilder appendCustomMessage() {
+            message.append('\n');
+            notifier.getCustomMessageTemplate().render(message, variables);
+            return this;
         }
 
         public String escape(String string) {
-            string = string.replace("&", "&amp;");
-            string = string.replace("<", "&lt;");
-            string = string.replace(">", "&gt;");
+            return escapeText(string);
+        }
 
-            return string;
+        /**
+         * Escapes {@code &}, {@code <} and {@code >}, returning the string itself when there is nothing to escape.
+         */
+        static String escapeText(String string) {
+            int first = firstToEscape(string);
+            if (first < 0) {
+                return string;
+            }
+            StringBuilder escaped = new StringBuilder(string.length() + 16);
+            escaped.append(string, 0, first);
+            escape(string, first, escaped);
+            return escaped.toString();
+        }
+
+        /**
+         * Appends the escaped string, in a single pass and without intermediate strings.
+         */
+        static void escape(String string, StringBuilder out) {
+            escape(string, 0, out);
+        }
+
+        private static void escape(String string, int from, StringBuilder out) {
+            int length = string.length();
+            // copies runs of characters that need no escaping in one go
+            int run = from;
+            for (int i = from; i < length; i++) {
+                String replacement;
+                switch (string.charAt(i)) {
+                    case '&':
+                        replacement = "&amp;";
+                        break;
+                    case '<':
+                        replacement = "&lt;";
+                        break;
+                    case '>':
+                        replacement = "&gt;";
+                        break;
+                    default:
+                        continue;
+                }
+                out.append(string, run, i).append(replacement);
+                run = i + 1;
+            }
+            out.append(string, run, length);
+        }
+
+        private static int firstToEscape(String string) {
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                if (c == '&' || c == '<' || c == '>') {
+                    return i;
+                }
+            }
+            return -1;
         }
 
         public String toString() {
@@ -0,0 +1,227 @@
+package jenkins.plugins.slack;
+
+import hudson.model.User;
+import hudson.scm.ChangeLogSet.Entry;
+import jenkins.model.Jenkins;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Display names of commit authors, and the Slack members they are mentioned as, without a user lookup
+ * per changelog entry.
+ *
+ * Finding the Jenkins user behind a commit author may go all the way to the security realm, e.g. LDAP.
+ * Names are therefore cached, by the author name the SCM records when it exposes one through a
+ * {@code getAuthorName()} method, as Git does, and by the id of the Jenkins user otherwise.
+ * The cache holds at most {@code jenkins.plugins.slack.AuthorNameCache.maxSize} names, for
+ * {@code jenkins.plugins.slack.AuthorNameCache.ttl} milliseconds.
+ *
+ * Mentions come from a {@link MentionSource}, by default the {@code slack-mentions.properties} file in
+ * {@code JENKINS_HOME}, with one {@code author=member} line per author. They are loaded in bulk and
+ * refreshed every {@code jenkins.plugins.slack.AuthorNameCache.mentionsRefresh} milliseconds.
+ */
+public final class AuthorNameCache {
+
+    private static final Logger logger = Logger.getLogger(AuthorNameCache.class.getName());
+
+    static final int MAX_SIZE = Integer.getInteger(AuthorNameCache.class.getName() + ".maxSize", 1000);
+    static final long TTL = Long.getLong(AuthorNameCache.class.getName() + ".ttl", 60 * 60 * 1000L);
+    static final long MENTIONS_REFRESH =
+            Long.getLong(AuthorNameCache.class.getName() + ".mentionsRefresh", 60 * 1000L);
+
+    static final String MENTIONS_FILE = "slack-mentions.properties";
+
+    private static AuthorNameCache instance;
+
+    /** {@code getAuthorName()} of each kind of entry, null if it has none */
+    private static final Map<Class<?>, Method> authorNameMethods = new WeakHashMap<Class<?>, Method>();
+
+    private final long ttl;
+    private final MentionSource mentionSource;
+    private final LinkedHashMap<String, Cached> names;
+    private Map<String, String> mentions = Collections.emptyMap();
+    private long mentionsLoadedAt = Long.MIN_VALUE;
+
+    /**
+     * Loads the Slack member mentioned for each commit author, all at once.
+     */
+    public interface MentionSource {
+        /**
+         * @return Slack member ids or names, by author name or display name
+         */
+        Map<String, String> load() throws IOException;
+    }
+
+    AuthorNameCache(final int maxSize, long ttl, MentionSource mentionSource) {
+        this.ttl = ttl;
+        this.mentionSource = mentionSource;
+        this.names = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public static synchronized AuthorNameCache get() {
+        if (instance == null) {
+            Jenkins jenkins = Jenkins.getInstance();
+            MentionSource mentions = jenkins != null
+                    ? new MentionFile(new File(jenkins.getRootDir(), MENTIONS_FILE)) : null;
+            instance = new AuthorNameCache(MAX_SIZE, TTL, mentions);
+        }
+        return instance;
+    }
+
+    /**
+     * Display name of the author of the entry.
+     */
+    public String getDisplayName(Entry entry) {
+        return getDisplayName(entry, System.currentTimeMillis());
+    }
+
+    String getDisplayName(Entry entry, long now) {
+        String authorName = getAuthorName(entry);
+        User author = null;
+        String key;
+        if (authorName != null) {
+            key = "author:" + authorName;
+        } else {
+            // the user is looked up anyway, only its display name is saved
+            author = entry.getAuthor();
+            key = "user:" + author.getId();
+        }
+        synchronized (this) {
+            Cached cached = names.get(key);
+            if (cached != null && now - cached.resolvedAt < ttl) {
+                return cached.displayName;
+            }
+        }
+        // looked up outside of the lock, it may be slow; two builds may both look up the same author
+        String displayName = (author != null ? author : entry.getAuthor()).getDisplayName();
+        synchronized (this) {
+            names.put(key, new Cached(displayName, now));
+        }
+        return displayName;
+    }
+
+    /**
+     * The Slack member to mention for the author of the entry, null if there is none.
+     */
+    public String getMention(Entry entry, String displayName) {
+        Map<String, String> mentions = getMentions(System.currentTimeMillis());
+        if (mentions.isEmpty()) {
+            return null;
+        }
+        String authorName = getAuthorName(entry);
+        String mention = authorName != null ? mentions.get(authorName) : null;
+        return mention != null ? mention : mentions.get(displayName);
+    }
+
+    synchronized Map<String, String> getMentions(long now) {
+        boolean stale = mentionsLoadedAt == Long.MIN_VALUE || now - mentionsLoadedAt >= MENTIONS_REFRESH;
+        if (mentionSource != null && stale) {
+            mentionsLoadedAt = now;
+            try {
+                mentions = mentionSource.load();
+            } catch (IOException e) {
+                // keep the mentions loaded last time
+                logger.log(Level.WARNING, "Could not load the Slack mentions of commit authors", e);
+            }
+        }
+        return mentions;
+    }
+
+    public synchronized void clear() {
+        names.clear();
+        mentionsLoadedAt = Long.MIN_VALUE;
+    }
+
+    /**
+     * The author name recorded by the SCM, if its entries expose it, null otherwise.
+     */
+    static String getAuthorName(Entry entry) {
+        Method method;
+        synchronized (authorNameMethods) {
+            Class<?> type = entry.getClass();
+            if (authorNameMethods.containsKey(type)) {
+                method = authorNameMethods.get(type);
+            } else {
+                method = findAuthorNameMethod(type);
+                authorNameMethods.put(type, method);
+            }
+        }
+        if (method == null) {
+            return null;
+        }
+        try {
+            return StringUtils.trimToNull((String) method.invoke(entry));
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Could not get the author name of " + entry, e);
+            return null;
+        }
+    }
+
+    private static Method findAuthorNameMethod(Class<?> type) {
+        try {
+            Method method = type.getMethod("getAuthorName");
+            return method.getReturnType() == String.class ? method : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static final class Cached {
+        private final String displayName;
+        private final long resolvedAt;
+
+        Cached(String displayName, long resolvedAt) {
+            this.displayName = displayName;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    /**
+     * Reads mentions from a file with one {@code author=member} line per author; lines starting with
+     * {@code #} are comments. A missing file means no mentions.
+     */
+    static final class MentionFile implements MentionSource {
+        private final File file;
+
+        MentionFile(File file) {
+            this.file = file;
+        }
+
+        public Map<String, String> load() throws IOException {
+            if (!file.isFile()) {
+                return Collections.emptyMap();
+            }
+            Map<String, String> mentions = new HashMap<String, String>();
+            for (String line : FileUtils.readLines(file, "UTF-8")) {
+                line = line.trim();
+                // authors may have '=' in their name, members do not
+                int separator = line.lastIndexOf('=');
+                if (line.startsWith("#") || separator <= 0) {
+                    continue;
+                }
+                String author = line.substring(0, separator).trim();
+                String member = line.substring(separator + 1).trim();
+                if (author.length() > 0 && member.length() > 0) {
+                    mentions.put(author, member);
+                }
+            }
+            return mentions;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package jenkins.plugins.slack;
+
+import hudson.model.Result;
+import hudson.model.Run;
+
+/**
+ * How a completed build compares to the ones before it, computed once and shared by the decision to notify
+ * and by the rendering of the message.
+ */
+public final class BuildTransition {
+
+    private final Result result;
+    private final Result previousResult;
+    private final boolean succeededBefore;
+    private final long backToNormalDuration;
+
+    BuildTransition(Result result, Result previousResult, boolean succeededBefore, long backToNormalDuration) {
+        this.result = result;
+        this.previousResult = previousResult;
+        this.succeededBefore = succeededBefore;
+        this.backToNormalDuration = backToNormalDuration;
+    }
+
+    /**
+     * Transition of a completed build, from the {@link BuildTransitionIndex} of its job.
+     */
+    public static BuildTransition of(Run<?, ?> build) {
+        BuildTransitionIndex.PreviousBuilds previous = BuildTransitionIndex.of(build.getParent()).before(build);
+        return of(build.getResult(), build.getStartTimeInMillis() + build.getDuration(), previous);
+    }
+
+    /**
+     * @param endTime when the build ended
+     */
+    static BuildTransition of(Result result, long endTime, BuildTransitionIndex.PreviousBuilds previous) {
+        /*
+         * Aborted builds do not affect build transitions, and if all previous builds have been aborted
+         * SUCCESS is used so that an aborted message is sent.
+         */
+        Result previousResult = previous.getNonAbortedResult() != null ? previous.getNonAbortedResult() : Result.SUCCESS;
+        long backToNormalDuration = -1;
+        if (isBackToNormal(result, previousResult, previous.hasSucceeded())) {
+            backToNormalDuration = endTime - previous.getLastSuccessEndTime();
+        }
+        return new BuildTransition(result, previousResult, previous.hasSucceeded(), backToNormalDuration);
+    }
+
+    /**
+     * Back to normal is only shown if the build has actually succeeded at some point,
+     * including when it was previously unstable.
+     */
+    private static boolean isBackToNormal(Result result, Result previousResult, boolean succeededBefore) {
+        return result == Result.SUCCESS
+                && (previousResult == Result.FAILURE || previousResult == Result.UNSTABLE)
+                && succeededBefore;
+    }
+
+    public static String colorOf(Result result) {
+        if (result == Result.SUCCESS) {
+            return "good";
+        } else if (result == Result.FAILURE) {
+            return "danger";
+        } else {
+            return "warning";
+        }
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    /**
+     * Result of the last build before this one that was not aborted, SUCCESS if there is none.
+     */
+    public Result getPreviousResult() {
+        return previousResult;
+    }
+
+    public boolean hasSucceededBefore() {
+        return succeededBefore;
+    }
+
+    public boolean isBackToNormal() {
+        return backToNormalDuration >= 0;
+    }
+
+    public boolean isRepeatedFailure() {
+        return result == Result.FAILURE && previousResult == Result.FAILURE;
+    }
+
+    /**
+     * Time between the end of the last successful build and the end of this one, -1 if the build is not back to normal.
+     */
+    public long getBackToNormalDuration() {
+        return backToNormalDuration;
+    }
+
+    public String getColor() {
+        return colorOf(result);
+    }
+
+    @Override
+    public String toString() {
+        return previousResult + " -> " + result;
+    }
+}
@@ -0,0 +1,251 @@
+package jenkins.plugins.slack;
+
+import hudson.XmlFile;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-job record of the results the Slack notifier needs to tell build transitions apart (back to normal,
+ * still failing...), so that they are not found by walking the build history, which loads every build on
+ * the way from disk.
+ *
+ * The index keeps the result and end time of the most recent completed builds, keyed by build number,
+ * and a summary of the older ones. Lookups are made relative to a given build rather than to the last
+ * build of the job, so that they stay right when builds of the same job run concurrently. The index is
+ * kept up to date by {@link SlackListener} and saved as {@code slack-transitions.xml} in the job directory.
+ * It is seeded from the build history the first time a job is looked up, or whenever it missed builds.
+ */
+public final class BuildTransitionIndex {
+
+    private static final Logger logger = Logger.getLogger(BuildTransitionIndex.class.getName());
+
+    static final String FILE_NAME = "slack-transitions.xml";
+    static final int MAX_RECENT = Integer.getInteger(BuildTransitionIndex.class.getName() + ".maxRecent", 50);
+
+    private static final Map<Job<?, ?>, BuildTransitionIndex> indexes = new WeakHashMap<Job<?, ?>, BuildTransitionIndex>();
+
+    /** most recent completed builds, by number */
+    private final TreeMap<Integer, Entry> recent = new TreeMap<Integer, Entry>();
+
+    /** number of the newest build summarized below, every build up to it is accounted for */
+    private int floorNumber;
+    private String floorResult;
+    private String floorNonAbortedResult;
+    private long floorSuccessEndTime = -1;
+
+    BuildTransitionIndex() {
+    }
+
+    /**
+     * The index of the given job, loaded from disk the first time.
+     */
+    public static BuildTransitionIndex of(Job<?, ?> job) {
+        synchronized (indexes) {
+            BuildTransitionIndex index = indexes.get(job);
+            if (index == null) {
+                index = load(job);
+                indexes.put(job, index);
+            }
+            return index;
+        }
+    }
+
+    private static BuildTransitionIndex load(Job<?, ?> job) {
+        XmlFile file = file(job);
+        if (file.exists()) {
+            try {
+                return (BuildTransitionIndex) file.read();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not read " + file + ", rebuilding it from the build history", e);
+            } catch (ClassCastException e) {
+                logger.log(Level.WARNING, "Unexpected content in " + file + ", rebuilding it from the build history", e);
+            }
+        }
+        return new BuildTransitionIndex();
+    }
+
+    private static XmlFile file(Job<?, ?> job) {
+        return new XmlFile(Jenkins.XSTREAM, new File(job.getRootDir(), FILE_NAME));
+    }
+
+    /**
+     * What the builds completed before the given one ended with.
+     */
+    public PreviousBuilds before(Run<?, ?> build) {
+        synchronized (this) {
+            if (isComplete(build)) {
+                return before(build.getNumber());
+            }
+        }
+        // walk the history outside of the lock, it may take a while
+        PreviousBuilds history = PreviousBuilds.fromHistory(build);
+        synchronized (this) {
+            seed(build.getNumber(), history);
+            return before(build.getNumber());
+        }
+    }
+
+    /**
+     * Records a completed build and saves the index.
+     */
+    public void record(Run<?, ?> build) {
+        Result result = build.getResult();
+        if (result == null) {
+            return;
+        }
+        synchronized (this) {
+            record(build.getNumber(), result, build.getStartTimeInMillis() + build.getDuration());
+            try {
+                file(build.getParent()).write(this);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not save the Slack build transitions of " + build.getParent(), e);
+            }
+        }
+    }
+
+    synchronized void record(int number, Result result, long endTime) {
+        if (number <= floorNumber) {
+            // already summarized
+            return;
+        }
+        recent.put(number, new Entry(result.toString(), endTime));
+        while (recent.size() > MAX_RECENT) {
+            Map.Entry<Integer, Entry> oldest = recent.pollFirstEntry();
+            floorNumber = oldest.getKey();
+            floorResult = oldest.getValue().result;
+            if (!Result.ABORTED.toString().equals(floorResult)) {
+                floorNonAbortedResult = floorResult;
+            }
+            if (Result.SUCCESS.toString().equals(floorResult)) {
+                floorSuccessEndTime = oldest.getValue().endTime;
+            }
+        }
+    }
+
+    synchronized PreviousBuilds before(int number) {
+        String previous = null;
+        String nonAborted = null;
+        long successEndTime = -1;
+        for (Entry entry : recent.headMap(number).descendingMap().values()) {
+            if (previous == null) {
+                previous = entry.result;
+            }
+            if (nonAborted == null && !Result.ABORTED.toString().equals(entry.result)) {
+                nonAborted = entry.result;
+            }
+            if (successEndTime < 0 && Result.SUCCESS.toString().equals(entry.result)) {
+                successEndTime = entry.endTime;
+            }
+            if (nonAborted != null && successEndTime >= 0) {
+                break;
+            }
+        }
+        return new PreviousBuilds(
+                toResult(previous != null ? previous : floorResult),
+                toResult(nonAborted != null ? nonAborted : floorNonAbortedResult),
+                successEndTime >= 0 ? successEndTime : floorSuccessEndTime);
+    }
+
+    /**
+     * Whether every build before the given one is accounted for. Only the previous build is checked, it is
+     * the one most likely to be missing, e.g. if the notifier was just added to the job.
+     */
+    private boolean isComplete(Run<?, ?> build) {
+        if (floorNumber == 0 && recent.isEmpty()) {
+            return build.getNumber() == 1;
+        }
+        Run<?, ?> previous = build.getPreviousBuild();
+        return previous == null || previous.getNumber() <= floorNumber || previous.isBuilding()
+                || recent.containsKey(previous.getNumber());
+    }
+
+    /**
+     * Replaces what is known about the builds before the given one.
+     */
+    private void seed(int number, PreviousBuilds history) {
+        recent.headMap(number).clear();
+        floorNumber = number - 1;
+        floorResult = history.getResult() != null ? history.getResult().toString() : null;
+        floorNonAbortedResult = history.getNonAbortedResult() != null ? history.getNonAbortedResult().toString() : null;
+        floorSuccessEndTime = history.getLastSuccessEndTime();
+    }
+
+    private static Result toResult(String result) {
+        return result != null ? Result.fromString(result) : null;
+    }
+
+    private static final class Entry {
+        private final String result;
+        private final long endTime;
+
+        Entry(String result, long endTime) {
+            this.result = result;
+            this.endTime = endTime;
+        }
+    }
+
+    /**
+     * Results of the builds completed before a given build.
+     */
+    public static final class PreviousBuilds {
+        private final Result result;
+        private final Result nonAbortedResult;
+        private final long lastSuccessEndTime;
+
+        PreviousBuilds(Result result, Result nonAbortedResult, long lastSuccessEndTime) {
+            this.result = result;
+            this.nonAbortedResult = nonAbortedResult;
+            this.lastSuccessEndTime = lastSuccessEndTime;
+        }
+
+        /**
+         * Walks the build history, the way the index avoids doing on every notification.
+         */
+        static PreviousBuilds fromHistory(Run<?, ?> build) {
+            Run<?, ?> previous = build.getPreviousCompletedBuild();
+            Run<?, ?> nonAborted = previous;
+            while (nonAborted != null && nonAborted.getResult() == Result.ABORTED) {
+                nonAborted = nonAborted.getPreviousCompletedBuild();
+            }
+            Run<?, ?> success = build.getPreviousSuccessfulBuild();
+            return new PreviousBuilds(previous != null ? previous.getResult() : null,
+                    nonAborted != null ? nonAborted.getResult() : null,
+                    success != null ? success.getStartTimeInMillis() + success.getDuration() : -1);
+        }
+
+        /**
+         * Result of the previous completed build, null if there is none.
+         */
+        public Result getResult() {
+            return result;
+        }
+
+        /**
+         * Result of the previous build that was not aborted, null if there is none.
+         */
+        public Result getNonAbortedResult() {
+            return nonAbortedResult;
+        }
+
+        /**
+         * When the previous successful build ended, -1 if there is none.
+         */
+        public long getLastSuccessEndTime() {
+            return lastSuccessEndTime;
+        }
+
+        public boolean hasSucceeded() {
+            return lastSuccessEndTime >= 0;
+        }
+    }
+}
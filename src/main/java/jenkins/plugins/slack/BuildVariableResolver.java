@@ -0,0 +1,120 @@
+package jenkins.plugins.slack;
+
+import hudson.EnvVars;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.model.User;
+import hudson.tasks.test.AbstractTestResultAction;
+import hudson.util.VariableResolver;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Resolves the variables referenced by the notifier settings and the custom message, for all the messages
+ * sent about one build.
+ *
+ * Only the variables a template actually references are looked up. Build variables, such as parameters,
+ * are tried first. The full environment of the build, which is expensive to compute on jobs with many
+ * environment contributors, is only computed when a variable is not one of them, and then at most once.
+ *
+ * A few variables are built in, and take precedence: {@code BUILD_RESULT} and {@code BUILD_DURATION},
+ * {@code TESTS_TOTAL}, {@code TESTS_PASSED}, {@code TESTS_FAILED} and {@code TESTS_SKIPPED}, and
+ * {@code CULPRITS}, the users who made changes since the last successful build.
+ */
+public class BuildVariableResolver implements VariableResolver<String> {
+
+    private final AbstractBuild<?, ?> build;
+    private final TaskListener listener;
+    private Map<String, String> buildVariables;
+    private EnvVars environment;
+
+    public BuildVariableResolver(AbstractBuild<?, ?> build, TaskListener listener) {
+        this.build = build;
+        this.listener = listener;
+    }
+
+    public AbstractBuild<?, ?> getBuild() {
+        return build;
+    }
+
+    public String resolve(String name) {
+        String builtIn = resolveBuiltIn(name);
+        if (builtIn != null) {
+            return builtIn;
+        }
+        if (buildVariables == null) {
+            buildVariables = build.getBuildVariables();
+        }
+        String value = buildVariables.get(name);
+        return value != null ? value : getEnvironment().get(name);
+    }
+
+    private String resolveBuiltIn(String name) {
+        if (!name.startsWith("BUILD_") && !name.startsWith("TESTS_") && !name.equals("CULPRITS")) {
+            return null;
+        }
+        if (name.equals("BUILD_RESULT")) {
+            Result result = build.getResult();
+            return result != null ? result.toString() : null;
+        }
+        if (name.equals("BUILD_DURATION")) {
+            return build.getDurationString();
+        }
+        if (name.equals("CULPRITS")) {
+            StringBuilder culprits = new StringBuilder();
+            for (User culprit : build.getCulprits()) {
+                if (culprits.length() > 0) {
+                    culprits.append(", ");
+                }
+                culprits.append(culprit.getDisplayName());
+            }
+            return culprits.toString();
+        }
+        if (name.startsWith("TESTS_")) {
+            AbstractTestResultAction<?> tests = build.getAction(AbstractTestResultAction.class);
+            int total = tests != null ? tests.getTotalCount() : 0;
+            int failed = tests != null ? tests.getFailCount() : 0;
+            int skipped = tests != null ? tests.getSkipCount() : 0;
+            if (name.equals("TESTS_TOTAL")) {
+                return String.valueOf(total);
+            } else if (name.equals("TESTS_PASSED")) {
+                return String.valueOf(total - failed - skipped);
+            } else if (name.equals("TESTS_FAILED")) {
+                return String.valueOf(failed);
+            } else if (name.equals("TESTS_SKIPPED")) {
+                return String.valueOf(skipped);
+            }
+        }
+        // e.g. BUILD_NUMBER, from the environment
+        return null;
+    }
+
+    /**
+     * Replaces the {@code $VAR} and {@code ${VAR}} references of the template, leaving unknown ones as they are.
+     */
+    public String expand(String template) {
+        if (template == null || template.indexOf('$') < 0) {
+            return template;
+        }
+        return Util.replaceMacro(template, this);
+    }
+
+    private EnvVars getEnvironment() {
+        if (environment == null) {
+            try {
+                environment = build.getEnvironment(listener);
+            } catch (IOException e) {
+                listener.getLogger().println("Error retrieving environment vars: " + e.getMessage());
+                environment = new EnvVars();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                listener.getLogger().println("Error retrieving environment vars: " + e.getMessage());
+                environment = new EnvVars();
+            }
+        }
+        return environment;
+    }
+}
@@ -0,0 +1,213 @@
+package jenkins.plugins.slack;
+
+import hudson.scm.ChangeLogSet;
+import hudson.scm.ChangeLogSet.AffectedFile;
+import hudson.scm.ChangeLogSet.Entry;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What the build start message says about a change set, gathered in a single pass over it.
+ *
+ * Memory does not grow with the size of the change set: affected files are counted without being kept,
+ * at most {@code jenkins.plugins.slack.ChangeSetSummary.maxAuthors} distinct authors are collected, and
+ * the optional directory histogram is a path trie limited in depth and in number of nodes. The histogram
+ * is only built when {@code jenkins.plugins.slack.ChangeSetSummary.topDirectories} is above 0.
+ */
+public final class ChangeSetSummary {
+
+    static final int MAX_AUTHORS = Integer.getInteger(ChangeSetSummary.class.getName() + ".maxAuthors", 20);
+    /** number of directories shown, 0 for none */
+    static final int TOP_DIRECTORIES = Integer.getInteger(ChangeSetSummary.class.getName() + ".topDirectories", 0);
+    /** how many levels of directories the histogram tells apart */
+    static final int DIRECTORY_DEPTH = Integer.getInteger(ChangeSetSummary.class.getName() + ".directoryDepth", 2);
+    static final int MAX_DIRECTORIES = Integer.getInteger(ChangeSetSummary.class.getName() + ".maxDirectories", 1000);
+
+    private int entryCount;
+    private int fileCount;
+    private final Set<String> authors = new LinkedHashSet<String>();
+    private boolean moreAuthors;
+    private final int maxAuthors;
+    private final PathTrie directories;
+
+    ChangeSetSummary(int maxAuthors, PathTrie directories) {
+        this.maxAuthors = maxAuthors;
+        this.directories = directories;
+    }
+
+    public static ChangeSetSummary of(ChangeLogSet<?> changeSet) {
+        ChangeSetSummary summary = new ChangeSetSummary(MAX_AUTHORS,
+                TOP_DIRECTORIES > 0 ? new PathTrie(DIRECTORY_DEPTH, MAX_DIRECTORIES) : null);
+        for (Entry entry : changeSet) {
+            summary.add(entry);
+        }
+        return summary;
+    }
+
+    void add(Entry entry) {
+        entryCount++;
+        addAuthor(AuthorNameCache.get().getDisplayName(entry));
+        for (AffectedFile file : entry.getAffectedFiles()) {
+            addFile(file.getPath());
+        }
+    }
+
+    void addAuthor(String author) {
+        if (authors.size() < maxAuthors) {
+            authors.add(author);
+        } else if (!authors.contains(author)) {
+            moreAuthors = true;
+        }
+    }
+
+    void addFile(String path) {
+        fileCount++;
+        if (directories != null) {
+            directories.add(path);
+        }
+    }
+
+    public boolean isEmpty() {
+        return entryCount == 0;
+    }
+
+    /**
+     * Number of affected files, counted once per entry they appear in.
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Distinct authors, in the order they were first seen, at most {@link #MAX_AUTHORS} of them.
+     */
+    public Set<String> getAuthors() {
+        return Collections.unmodifiableSet(authors);
+    }
+
+    /**
+     * Whether there are authors beyond the ones returned by {@link #getAuthors()}.
+     */
+    public boolean hasMoreAuthors() {
+        return moreAuthors;
+    }
+
+    /**
+     * The directories with the most affected files, most changed first, empty if the histogram is off.
+     */
+    public List<Map.Entry<String, Integer>> getTopDirectories(int n) {
+        return directories != null ? directories.top(n) : Collections.<Map.Entry<String, Integer>>emptyList();
+    }
+
+    /**
+     * Counts files per directory, down to a given depth. Directories are stored one path segment per node,
+     * so paths sharing a prefix share its nodes. Once the node cap is reached, files whose directory is not
+     * in the trie yet are counted in the deepest directory of their path that is.
+     */
+    static final class PathTrie {
+        private final int depth;
+        private final int maxNodes;
+        private final Node root = new Node(null, "");
+        private int nodes;
+
+        PathTrie(int depth, int maxNodes) {
+            this.depth = depth;
+            this.maxNodes = maxNodes;
+        }
+
+        void add(String path) {
+            Node node = root;
+            int start = path.startsWith("/") ? 1 : 0;
+            for (int level = 0; level < depth; level++) {
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    // the rest is the file name
+                    break;
+                }
+                String segment = path.substring(start, end);
+                start = end + 1;
+                if (segment.length() == 0) {
+                    continue;
+                }
+                Node child = node.children != null ? node.children.get(segment) : null;
+                if (child == null) {
+                    if (nodes >= maxNodes) {
+                        break;
+                    }
+                    child = node.addChild(segment);
+                    nodes++;
+                }
+                node = child;
+            }
+            node.files++;
+        }
+
+        /**
+         * The nodes with the most files counted directly in them, which are the directories at the maximum
+         * depth, plus shallower ones holding files themselves.
+         */
+        List<Map.Entry<String, Integer>> top(int n) {
+            List<Node> counted = new ArrayList<Node>();
+            collect(root, counted);
+            Collections.sort(counted, new Comparator<Node>() {
+                public int compare(Node a, Node b) {
+                    return b.files - a.files;
+                }
+            });
+            int size = Math.min(n, counted.size());
+            List<Map.Entry<String, Integer>> top = new ArrayList<Map.Entry<String, Integer>>(size);
+            for (Node node : counted.subList(0, size)) {
+                top.add(new AbstractMap.SimpleImmutableEntry<String, Integer>(node.path(), node.files));
+            }
+            return top;
+        }
+
+        private static void collect(Node node, List<Node> counted) {
+            if (node.files > 0) {
+                counted.add(node);
+            }
+            if (node.children != null) {
+                for (Node child : node.children.values()) {
+                    collect(child, counted);
+                }
+            }
+        }
+    }
+
+    private static final class Node {
+        private final Node parent;
+        private final String segment;
+        /** created on the first child, most nodes at the maximum depth have none */
+        private Map<String, Node> children;
+        private int files;
+
+        Node(Node parent, String segment) {
+            this.parent = parent;
+            this.segment = segment;
+        }
+
+        Node addChild(String segment) {
+            if (children == null) {
+                children = new HashMap<String, Node>(4);
+            }
+            Node child = new Node(this, segment);
+            children.put(segment, child);
+            return child;
+        }
+
+        String path() {
+            if (parent == null) {
+                return "/";
+            }
+            return parent.parent == null ? segment : parent.path() + "/" + segment;
+        }
+    }
+}
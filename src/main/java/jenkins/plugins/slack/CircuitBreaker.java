@@ -0,0 +1,207 @@
+package jenkins.plugins.slack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ * Stops posting to a Slack team whose endpoint keeps failing, so that an outage on Slack's side does not
+ * cost every build a round of timeouts.
+ *
+ * The breaker is closed while the failure rate over the last posts stays under the threshold. Once it is
+ * exceeded the breaker opens and posts fail fast. After a while a single probe is let through (half-open):
+ * if it succeeds the breaker closes again, otherwise it stays open for another period.
+ * Breakers are shared plugin-wide per team domain. The window size, minimum number of posts, failure rate
+ * (in percent) and open duration (in milliseconds) can be tuned with the
+ * {@code jenkins.plugins.slack.CircuitBreaker.windowSize}, {@code .minimumCalls}, {@code .failureRateThreshold}
+ * and {@code .openDuration} system properties.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = Logger.getLogger(CircuitBreaker.class.getName());
+
+    static final int WINDOW_SIZE = Integer.getInteger(CircuitBreaker.class.getName() + ".windowSize", 20);
+    static final int MINIMUM_CALLS = Integer.getInteger(CircuitBreaker.class.getName() + ".minimumCalls", 5);
+    static final int FAILURE_RATE_THRESHOLD =
+            Integer.getInteger(CircuitBreaker.class.getName() + ".failureRateThreshold", 50);
+    static final long OPEN_DURATION = Long.getLong(CircuitBreaker.class.getName() + ".openDuration", 60 * 1000L);
+
+    public enum State {
+        /** Posts go through. */
+        CLOSED,
+        /** Posts fail fast. */
+        OPEN,
+        /** One post is let through to find out whether the team can be reached again. */
+        HALF_OPEN
+    }
+
+    private static final ConcurrentMap<String, CircuitBreaker> teams = new ConcurrentHashMap<String, CircuitBreaker>();
+
+    private final String teamDomain;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDuration;
+
+    /** outcome of the last posts, true for a failure, used as a ring buffer */
+    private final boolean[] window;
+    private int next;
+    private int calls;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probing;
+
+    public CircuitBreaker(String teamDomain, int windowSize, int minimumCalls, int failureRateThreshold,
+                          long openDuration) {
+        this.teamDomain = teamDomain;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+    }
+
+    public static CircuitBreaker forTeam(String teamDomain) {
+        CircuitBreaker breaker = teams.get(teamDomain);
+        if (breaker == null) {
+            CircuitBreaker created = new CircuitBreaker(teamDomain, WINDOW_SIZE, MINIMUM_CALLS,
+                    FAILURE_RATE_THRESHOLD, OPEN_DURATION);
+            breaker = teams.putIfAbsent(teamDomain, created);
+            if (breaker == null) {
+                breaker = created;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * Breakers of every team posted to since startup, ordered by team domain.
+     */
+    public static List<CircuitBreaker> all() {
+        List<CircuitBreaker> all = new ArrayList<CircuitBreaker>(teams.values());
+        Collections.sort(all, new Comparator<CircuitBreaker>() {
+            public int compare(CircuitBreaker a, CircuitBreaker b) {
+                return a.teamDomain.compareTo(b.teamDomain);
+            }
+        });
+        return all;
+    }
+
+    /**
+     * Whether a post may be made now. Every permitted post must be followed by
+     * {@link #recordSuccess()}, {@link #recordFailure()} or {@link #release()}.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDuration) {
+                return false;
+            }
+            logger.info("Probing whether Slack team " + teamDomain + " can be reached again");
+            state = State.HALF_OPEN;
+        }
+        if (probing) {
+            return false;
+        }
+        probing = true;
+        return true;
+    }
+
+    /**
+     * Whether posts are failing fast until the open period is over, without taking the probe.
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAt < openDuration;
+    }
+
+    /**
+     * Slack answered, even if it refused the message.
+     */
+    public synchronized void recordSuccess() {
+        if (state == State.HALF_OPEN) {
+            logger.info("Slack team " + teamDomain + " can be reached again, resuming notifications");
+            state = State.CLOSED;
+            probing = false;
+            reset();
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * The post failed in a way that hints at Slack being unavailable: a timeout, an I/O error or a 5xx answer.
+     */
+    public synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minimumCalls && failures * 100 >= failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * The permitted post was not made after all.
+     */
+    public synchronized void release() {
+        probing = false;
+    }
+
+    public String getTeamDomain() {
+        return teamDomain;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Failure rate over the current window, in percent.
+     */
+    public synchronized int getFailureRate() {
+        return calls == 0 ? 0 : failures * 100 / calls;
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        logger.warning("Posts to Slack team " + teamDomain + " keep failing, suspending notifications for "
+                + openDuration / 1000 + "s");
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        probing = false;
+        reset();
+    }
+
+    private void reset() {
+        next = 0;
+        calls = 0;
+        failures = 0;
+    }
+
+    @Override
+    public String toString() {
+        return teamDomain + ": " + getState();
+    }
+}
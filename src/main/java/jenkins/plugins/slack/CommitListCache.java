@@ -0,0 +1,121 @@
+package jenkins.plugins.slack;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Commit lists rendered for upstream builds, shared by all the downstream builds they trigger, so that a
+ * commit fanning out to many jobs has its changelog parsed once rather than once per job.
+ *
+ * The cache holds at most {@code jenkins.plugins.slack.CommitListCache.maxSize} lists, evicting the least
+ * recently used first, and drops them {@code jenkins.plugins.slack.CommitListCache.maxAge} milliseconds
+ * after they were rendered. Downstream builds asking for a list while it is being rendered wait for it
+ * instead of rendering it again.
+ */
+public final class CommitListCache {
+
+    static final int MAX_SIZE = Integer.getInteger(CommitListCache.class.getName() + ".maxSize", 256);
+    static final long MAX_AGE = Long.getLong(CommitListCache.class.getName() + ".maxAge", 10 * 60 * 1000L);
+
+    private static final CommitListCache shared = new CommitListCache(MAX_SIZE, MAX_AGE);
+
+    private final long maxAge;
+    private final LinkedHashMap<String, Cached> lists;
+
+    public CommitListCache(final int maxSize, long maxAge) {
+        this.maxAge = maxAge;
+        this.lists = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public static CommitListCache get() {
+        return shared;
+    }
+
+    /**
+     * Key of the list of an upstream build, as rendered with the given commit information.
+     */
+    static String key(String jobFullName, int buildNumber, CommitInfoChoice commitInfoChoice) {
+        return jobFullName + "#" + buildNumber + "#" + commitInfoChoice;
+    }
+
+    /**
+     * The list cached under the given key, rendered first if it is missing or too old. Lists are made of the
+     * parts returned by {@link CommitListRenderer}.
+     */
+    public List<String> get(String key, Callable<List<String>> render) {
+        return get(key, render, System.currentTimeMillis());
+    }
+
+    List<String> get(String key, Callable<List<String>> render, long now) {
+        Cached cached;
+        boolean rendering = false;
+        synchronized (this) {
+            cached = lists.get(key);
+            if (cached == null || now - cached.renderedAt >= maxAge) {
+                evictExpired(now);
+                cached = new Cached(render, now);
+                lists.put(key, cached);
+                rendering = true;
+            }
+        }
+        if (rendering) {
+            cached.list.run();
+        }
+        try {
+            return cached.list.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the commit list of " + key, e);
+        } catch (ExecutionException e) {
+            // not cached, the next build may have better luck
+            synchronized (this) {
+                if (lists.get(key) == cached) {
+                    lists.remove(key);
+                }
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public synchronized int size() {
+        return lists.size();
+    }
+
+    /**
+     * Drops the lists that are too old, they would be rendered again anyway.
+     */
+    private void evictExpired(long now) {
+        for (Iterator<Cached> it = lists.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().renderedAt >= maxAge) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        lists.clear();
+    }
+
+    private static final class Cached {
+        private final FutureTask<List<String>> list;
+        private final long renderedAt;
+
+        Cached(Callable<List<String>> render, long renderedAt) {
+            this.list = new FutureTask<List<String>>(render);
+            this.renderedAt = renderedAt;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package jenkins.plugins.slack;
+
+import hudson.scm.ChangeLogSet.Entry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Renders the commits of a change set, in changelog order, into parts small enough to be sent as
+ * separate attachments.
+ *
+ * Rendering stops once {@code jenkins.plugins.slack.CommitListRenderer.maxCommits} commits or
+ * {@code jenkins.plugins.slack.CommitListRenderer.maxLength} characters have been rendered; the remaining
+ * commits are only counted, and summed up as "…and N more". Each part holds at most
+ * {@code jenkins.plugins.slack.CommitListRenderer.maxPartLength} characters, so that no post comes near
+ * Slack's size limit.
+ */
+public final class CommitListRenderer {
+
+    static final int MAX_COMMITS = Integer.getInteger(CommitListRenderer.class.getName() + ".maxCommits", 50);
+    static final int MAX_LENGTH = Integer.getInteger(CommitListRenderer.class.getName() + ".maxLength", 12000);
+    static final int MAX_PART_LENGTH = Integer.getInteger(CommitListRenderer.class.getName() + ".maxPartLength", 3000);
+
+    private static final String ELLIPSIS = "\u2026";
+
+    private final CommitInfoChoice commitInfoChoice;
+    private final AuthorNameCache authors;
+    private final int maxCommits;
+    private final int maxLength;
+    private final int maxPartLength;
+
+    public CommitListRenderer(CommitInfoChoice commitInfoChoice) {
+        this(commitInfoChoice, AuthorNameCache.get(), MAX_COMMITS, MAX_LENGTH, MAX_PART_LENGTH);
+    }
+
+    CommitListRenderer(CommitInfoChoice commitInfoChoice, AuthorNameCache authors, int maxCommits, int maxLength,
+                       int maxPartLength) {
+        this.commitInfoChoice = commitInfoChoice;
+        this.authors = authors;
+        this.maxCommits = maxCommits;
+        this.maxLength = maxLength;
+        // room for the header of the first part, which may be long
+        this.maxPartLength = Math.max(maxPartLength, 100);
+    }
+
+    /**
+     * @param header escaped text the first part starts with
+     * @param entries the commits, in changelog order
+     * @return the parts of the list, empty if there are no commits
+     */
+    public List<String> render(String header, Iterable<?> entries) {
+        Iterator<?> it = entries.iterator();
+        if (!it.hasNext()) {
+            return Collections.emptyList();
+        }
+        List<String> parts = new ArrayList<String>();
+        // the same line is only shown once, e.g. when only authors are shown
+        Set<String> shown = new HashSet<String>();
+        StringBuilder part = new StringBuilder(Math.min(maxPartLength, 1024));
+        part.append(header).append("Changes:");
+        int length = 0;
+        int more = 0;
+        while (it.hasNext()) {
+            Entry entry = (Entry) it.next();
+            if (shown.size() >= maxCommits || length >= maxLength) {
+                more++;
+                continue;
+            }
+            String line = "\n- " + format(entry);
+            if (!shown.add(line)) {
+                continue;
+            }
+            if (part.length() + line.length() > maxPartLength) {
+                parts.add(part.toString());
+                part.setLength(0);
+                // a part starts without a line break
+                line = line.substring(1);
+            }
+            part.append(line);
+            length += line.length();
+        }
+        if (more > 0) {
+            String tail = (part.length() > 0 ? "\n" : "") + ELLIPSIS + "and " + more + " more";
+            if (part.length() + tail.length() > maxPartLength) {
+                parts.add(part.toString());
+                part.setLength(0);
+                tail = tail.trim();
+            }
+            part.append(tail);
+        }
+        if (part.length() > 0) {
+            parts.add(part.toString());
+        }
+        return parts;
+    }
+
+    /**
+     * The escaped line of a commit, where the author is a Slack mention if there is one for them.
+     */
+    private String format(Entry entry) {
+        StringBuilder commit = new StringBuilder();
+        if (commitInfoChoice.showTitle()) {
+            commit.append(ActiveNotifier.MessageBuilder.escapeText(truncate(entry.getMsg())));
+        }
+        if (commitInfoChoice.showAuthor()) {
+            String author = authors.getDisplayName(entry);
+            String mention = authors.getMention(entry, author);
+            commit.append(" [");
+            if (mention != null) {
+                commit.append("<@").append(truncate(mention)).append(">");
+            } else {
+                commit.append(ActiveNotifier.MessageBuilder.escapeText(truncate(author)));
+            }
+            commit.append("]");
+        }
+        return commit.toString();
+    }
+
+    /**
+     * Shortens a message or an author so that a single commit always fits in a part, whatever their length.
+     */
+    private String truncate(String text) {
+        // escaping makes a character at most five long, and the message and the author share the part
+        int max = (maxPartLength - 8) / 10;
+        return text.length() > max ? text.substring(0, max) + ELLIPSIS : text;
+    }
+}
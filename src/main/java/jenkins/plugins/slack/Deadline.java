@@ -0,0 +1,51 @@
+package jenkins.plugins.slack;
+
+/**
+ * Point in time by which a publish call has to be over, shared by all the posts and retries it makes.
+ */
+final class Deadline {
+
+    static final Deadline NONE = new Deadline(0);
+
+    /** 0 when there is no deadline */
+    private final long expiresAt;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * A deadline the given number of milliseconds from now, or {@link #NONE} if it is not positive.
+     */
+    static Deadline after(long millis) {
+        return millis > 0 ? new Deadline(System.currentTimeMillis() + millis) : NONE;
+    }
+
+    /**
+     * Milliseconds left, {@link Long#MAX_VALUE} when there is no deadline.
+     */
+    long remaining() {
+        if (expiresAt == 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, expiresAt - System.currentTimeMillis());
+    }
+
+    boolean isExpired() {
+        return remaining() == 0;
+    }
+
+    /**
+     * Shortens a timeout so that it does not run past the deadline.
+     *
+     * @param timeout a timeout in milliseconds, 0 meaning none
+     * @return the timeout to use, at least 1 ms unless there is neither a timeout nor a deadline
+     */
+    int clamp(int timeout) {
+        if (expiresAt == 0) {
+            return timeout;
+        }
+        long remaining = Math.max(1, remaining());
+        return (int) Math.min(timeout > 0 ? timeout : Integer.MAX_VALUE, remaining);
+    }
+}
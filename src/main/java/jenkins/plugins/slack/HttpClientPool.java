@@ -0,0 +1,276 @@
+package jenkins.plugins.slack;
+
+import hudson.ProxyConfiguration;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.init.Terminator;
+import jenkins.model.Jenkins;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.UsernamePasswordCredentials;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.methods.HeadMethod;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plugin-wide pool of keep-alive connections to Slack.
+ *
+ * Every {@link HttpClient} handed out by {@link #newHttpClient()} shares one
+ * {@link MultiThreadedHttpConnectionManager}, so consecutive posts to the same team reuse an
+ * already established TCP/TLS connection instead of paying a new handshake each time.
+ * The pool is rebuilt whenever the Jenkins proxy configuration changes; the previous one is closed once the
+ * posts still using it are done. Once Jenkins shuts down, after the {@link NotificationDispatcher} has stopped,
+ * no client is handed out anymore.
+ */
+public final class HttpClientPool {
+
+    private static final Logger logger = Logger.getLogger(HttpClientPool.class.getName());
+
+    static final int MAX_TOTAL_CONNECTIONS =
+            Integer.getInteger(HttpClientPool.class.getName() + ".maxTotalConnections", 40);
+    static final int MAX_CONNECTIONS_PER_HOST =
+            Integer.getInteger(HttpClientPool.class.getName() + ".maxConnectionsPerHost", 10);
+    static final long IDLE_TIMEOUT =
+            Long.getLong(HttpClientPool.class.getName() + ".idleTimeout", 60 * 1000L);
+    static final boolean PREWARM = Boolean.getBoolean(HttpClientPool.class.getName() + ".prewarm");
+
+    private static MultiThreadedHttpConnectionManager connectionManager;
+    private static IdleConnectionTimeoutThread idleConnectionReaper;
+    private static String proxyKey;
+    private static int rebuilds;
+    /** of the global configuration, the only one connections are opened with */
+    private static int connectTimeout = Timeouts.DEFAULT.getConnectTimeout();
+    /** pools replaced by a proxy change, closed once none of their connections is in use */
+    private static final List<MultiThreadedHttpConnectionManager> retired =
+            new ArrayList<MultiThreadedHttpConnectionManager>();
+    private static boolean terminated;
+
+    private HttpClientPool() {
+    }
+
+    /**
+     * Returns a client backed by the shared pool and configured for the current Jenkins proxy.
+     *
+     * @throws IllegalStateException once Jenkins is shutting down
+     */
+    public static HttpClient newHttpClient() {
+        ProxyConfiguration proxy = Jenkins.getInstance() != null ? Jenkins.getInstance().proxy : null;
+        MultiThreadedHttpConnectionManager manager = connectionManagerFor(proxy);
+        HttpClient client = new HttpClient(manager);
+        if (proxy != null) {
+            client.getHostConfiguration().setProxy(proxy.name, proxy.port);
+            String username = proxy.getUserName();
+            String password = proxy.getPassword();
+            // Consider it to be passed if username specified. Sufficient?
+            if (username != null && !"".equals(username.trim())) {
+                logger.fine("Using proxy authentication (user=" + username + ")");
+                // http://hc.apache.org/httpclient-3.x/authentication.html#Proxy_Authentication
+                // and
+                // http://svn.apache.org/viewvc/httpcomponents/oac.hc3x/trunk/src/examples/BasicAuthenticationExample.java?view=markup
+                client.getState().setProxyCredentials(AuthScope.ANY,
+                    new UsernamePasswordCredentials(username, password));
+            }
+        }
+        return client;
+    }
+
+    static synchronized MultiThreadedHttpConnectionManager connectionManagerFor(ProxyConfiguration proxy) {
+        if (terminated) {
+            throw new IllegalStateException("Slack connection pool is shut down");
+        }
+        closeRetired();
+        String key = keyOf(proxy);
+        if (connectionManager == null || !key.equals(proxyKey)) {
+            if (connectionManager != null) {
+                logger.info("Proxy configuration changed, rebuilding Slack connection pool");
+                rebuilds++;
+                // posts still running keep their connection, the reaper closes it once it is idle
+                retired.add(connectionManager);
+            }
+            connectionManager = createConnectionManager();
+            if (idleConnectionReaper == null) {
+                idleConnectionReaper = new IdleConnectionTimeoutThread();
+                idleConnectionReaper.setName("Slack idle connection reaper");
+                idleConnectionReaper.setConnectionTimeout(IDLE_TIMEOUT);
+                idleConnectionReaper.setTimeoutInterval(Math.max(1000L, IDLE_TIMEOUT / 2));
+                idleConnectionReaper.start();
+            }
+            idleConnectionReaper.addConnectionManager(connectionManager);
+            proxyKey = key;
+            closeRetired();
+        }
+        return connectionManager;
+    }
+
+    /**
+     * Closes the idle connections of the replaced pools, and the pools left with no connection in use.
+     */
+    private static void closeRetired() {
+        for (Iterator<MultiThreadedHttpConnectionManager> it = retired.iterator(); it.hasNext();) {
+            MultiThreadedHttpConnectionManager manager = it.next();
+            manager.closeIdleConnections(0);
+            manager.deleteClosedConnections();
+            if (manager.getConnectionsInPool() == 0) {
+                idleConnectionReaper.removeConnectionManager(manager);
+                manager.shutdown();
+                it.remove();
+            }
+        }
+    }
+
+    private static MultiThreadedHttpConnectionManager createConnectionManager() {
+        MultiThreadedHttpConnectionManager manager = new MultiThreadedHttpConnectionManager();
+        HttpConnectionManagerParams params = manager.getParams();
+        params.setMaxTotalConnections(MAX_TOTAL_CONNECTIONS);
+        params.setDefaultMaxConnectionsPerHost(MAX_CONNECTIONS_PER_HOST);
+        // pooled connections may have been closed by slack.com or the proxy while idle
+        params.setStaleCheckingEnabled(true);
+        params.setConnectionTimeout(connectTimeout);
+        params.setSoTimeout(Timeouts.DEFAULT.getReadTimeout());
+        return manager;
+    }
+
+    /**
+     * Sets the connect timeout of the connections opened from now on, once the global configuration is loaded
+     * or saved. Posts do not set it themselves, since they share the pool.
+     */
+    public static synchronized void setConnectTimeout(int connectTimeout) {
+        HttpClientPool.connectTimeout = connectTimeout;
+        if (connectionManager != null) {
+            connectionManager.getParams().setConnectionTimeout(connectTimeout);
+        }
+    }
+
+    private static String keyOf(ProxyConfiguration proxy) {
+        if (proxy == null) {
+            return "";
+        }
+        String password = proxy.getPassword();
+        return proxy.name + ":" + proxy.port + ":" + StringUtils.defaultString(proxy.getUserName())
+                + ":" + (password == null ? 0 : password.hashCode());
+    }
+
+    /**
+     * Snapshot of the pool usage, mostly useful for diagnostics from the script console.
+     */
+    public static synchronized Stats getStats() {
+        int inPool = connectionManager != null ? connectionManager.getConnectionsInPool() : 0;
+        for (MultiThreadedHttpConnectionManager manager : retired) {
+            inPool += manager.getConnectionsInPool();
+        }
+        return new Stats(inPool, MAX_TOTAL_CONNECTIONS, MAX_CONNECTIONS_PER_HOST, rebuilds);
+    }
+
+    /**
+     * Closes the pool once no more notifications are sent, and refuses to open another one.
+     */
+    @Terminator(requires = NotificationDispatcher.STOPPED)
+    public static synchronized void terminate() {
+        terminated = true;
+        shutdown();
+    }
+
+    /**
+     * Closes the pool; the next client opens a new one.
+     */
+    static synchronized void shutdown() {
+        if (idleConnectionReaper != null) {
+            idleConnectionReaper.shutdown();
+            idleConnectionReaper = null;
+        }
+        for (MultiThreadedHttpConnectionManager manager : retired) {
+            manager.shutdown();
+        }
+        retired.clear();
+        if (connectionManager != null) {
+            connectionManager.shutdown();
+            connectionManager = null;
+        }
+        proxyKey = null;
+    }
+
+    /**
+     * Opens the pool again for a Jenkins started again in the same JVM, as tests do.
+     */
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static synchronized void start() {
+        terminated = false;
+    }
+
+    /**
+     * Opens a connection to the globally configured team ahead of the first notification,
+     * when enabled with the {@code jenkins.plugins.slack.HttpClientPool.prewarm} system property.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void prewarm() {
+        if (!PREWARM || Jenkins.getInstance() == null) {
+            return;
+        }
+        SlackNotifier.DescriptorImpl descriptor =
+                Jenkins.getInstance().getDescriptorByType(SlackNotifier.DescriptorImpl.class);
+        final String teamDomain = descriptor != null ? descriptor.getTeamDomain() : null;
+        if (StringUtils.isEmpty(teamDomain)) {
+            return;
+        }
+        Thread t = new Thread("Slack connection pool warm-up") {
+            @Override
+            public void run() {
+                HeadMethod head = new HeadMethod("https://" + teamDomain + ".slack.com/");
+                try {
+                    newHttpClient().executeMethod(head);
+                    logger.fine("Warmed up Slack connection pool for " + teamDomain);
+                } catch (Exception e) {
+                    logger.log(Level.FINE, "Could not warm up Slack connection pool", e);
+                } finally {
+                    head.releaseConnection();
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public static final class Stats {
+        private final int connectionsInPool;
+        private final int maxTotalConnections;
+        private final int maxConnectionsPerHost;
+        private final int rebuilds;
+
+        Stats(int connectionsInPool, int maxTotalConnections, int maxConnectionsPerHost, int rebuilds) {
+            this.connectionsInPool = connectionsInPool;
+            this.maxTotalConnections = maxTotalConnections;
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            this.rebuilds = rebuilds;
+        }
+
+        public int getConnectionsInPool() {
+            return connectionsInPool;
+        }
+
+        public int getMaxTotalConnections() {
+            return maxTotalConnections;
+        }
+
+        public int getMaxConnectionsPerHost() {
+            return maxConnectionsPerHost;
+        }
+
+        public int getRebuilds() {
+            return rebuilds;
+        }
+
+        @Override
+        public String toString() {
+            return "connections in pool: " + connectionsInPool + "/" + maxTotalConnections
+                    + " (max " + maxConnectionsPerHost + " per host), rebuilds: " + rebuilds;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package jenkins.plugins.slack;
+
+import hudson.util.VariableResolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A custom message parsed once into literal text and variable references, so that each notification only
+ * resolves the variables and copies the text.
+ *
+ * The syntax is the one of {@link hudson.Util#replaceMacro(String, VariableResolver)}: {@code $NAME},
+ * {@code ${NAME}}, and {@code $$} for a dollar sign. References the resolver knows nothing about are left
+ * as they are.
+ */
+public final class MessageTemplate {
+
+    private static final MessageTemplate EMPTY = new MessageTemplate("", Collections.<Segment>emptyList());
+
+    private final String source;
+    private final List<Segment> segments;
+
+    private MessageTemplate(String source, List<Segment> segments) {
+        this.source = source;
+        this.segments = segments;
+    }
+
+    public static MessageTemplate compile(String source) {
+        if (source == null || source.length() == 0) {
+            return EMPTY;
+        }
+        List<Segment> segments = new ArrayList<Segment>();
+        StringBuilder literal = new StringBuilder();
+        int length = source.length();
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            int end = c == '$' ? referenceEnd(source, i) : -1;
+            if (end < 0) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            if (source.charAt(i + 1) == '$') {
+                literal.append('$');
+            } else {
+                if (literal.length() > 0) {
+                    segments.add(new Segment(literal.toString(), false));
+                    literal.setLength(0);
+                }
+                boolean braced = source.charAt(i + 1) == '{';
+                String name = braced ? source.substring(i + 2, end - 1) : source.substring(i + 1, end);
+                segments.add(new Variable(name, source.substring(i, end)));
+            }
+            i = end;
+        }
+        if (literal.length() > 0) {
+            segments.add(new Segment(literal.toString(), false));
+        }
+        return new MessageTemplate(source, segments);
+    }
+
+    /**
+     * End of the reference starting with the {@code $} at the given index, -1 if there is none.
+     */
+    private static int referenceEnd(String source, int dollar) {
+        int i = dollar + 1;
+        if (i >= source.length()) {
+            return -1;
+        }
+        char c = source.charAt(i);
+        if (c == '$') {
+            return i + 1;
+        }
+        if (c == '{') {
+            int j = i + 1;
+            while (j < source.length() && isNameChar(source.charAt(j), true)) {
+                j++;
+            }
+            return j > i + 1 && j < source.length() && source.charAt(j) == '}' ? j + 1 : -1;
+        }
+        int j = i;
+        while (j < source.length() && isNameChar(source.charAt(j), false)) {
+            j++;
+        }
+        return j > i ? j : -1;
+    }
+
+    private static boolean isNameChar(char c, boolean braced) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_'
+                || (braced && c == '.');
+    }
+
+    /**
+     * Appends the message, with its variables resolved, to the given buffer.
+     */
+    public void render(StringBuilder out, VariableResolver<String> variables) {
+        for (Segment segment : segments) {
+            segment.render(out, variables);
+        }
+    }
+
+    public String render(VariableResolver<String> variables) {
+        StringBuilder out = new StringBuilder(source.length() + 64);
+        render(out, variables);
+        return out.toString();
+    }
+
+    /**
+     * Names of the variables the message refers to.
+     */
+    public List<String> getVariables() {
+        List<String> names = new ArrayList<String>();
+        for (Segment segment : segments) {
+            if (segment.variable) {
+                names.add(segment.text);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private static class Segment {
+        /** the literal text, or the name of the variable */
+        final String text;
+        final boolean variable;
+
+        Segment(String text, boolean variable) {
+            this.text = text;
+            this.variable = variable;
+        }
+
+        void render(StringBuilder out, VariableResolver<String> variables) {
+            out.append(text);
+        }
+    }
+
+    private static final class Variable extends Segment {
+        /** how the variable is written in the message, kept when it cannot be resolved */
+        private final String reference;
+
+        Variable(String name, String reference) {
+            super(name, true);
+            this.reference = reference;
+        }
+
+        @Override
+        void render(StringBuilder out, VariableResolver<String> variables) {
+            String value = variables.resolve(text);
+            out.append(value != null ? value : reference);
+        }
+    }
+}
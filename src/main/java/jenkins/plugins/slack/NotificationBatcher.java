@@ -0,0 +1,312 @@
+package jenkins.plugins.slack;
+
+import hudson.init.Terminator;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.plugins.slack.PublishResult.Delivery;
+import jenkins.plugins.slack.outbox.Outbox;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Merges the notifications sent to the same room of the same team in a short time into a single post,
+ * with one attachment per notification, so that a burst of builds finishing together costs one call
+ * instead of one each.
+ *
+ * A notification to a room that has been quiet for a whole window is sent right away. Only when another
+ * one follows within the window are they held back and merged, until the window elapses or the batch
+ * reaches its size cap. The window, in milliseconds, and the cap can be tuned with the
+ * {@code jenkins.plugins.slack.NotificationBatcher.window}, {@code .maxAttachments} and {@code .maxLength}
+ * system properties; a window of 0 turns batching off.
+ */
+public final class NotificationBatcher {
+
+    private static final Logger logger = Logger.getLogger(NotificationBatcher.class.getName());
+
+    static final long WINDOW = Long.getLong(NotificationBatcher.class.getName() + ".window", 2000L);
+    static final int MAX_ATTACHMENTS = Integer.getInteger(NotificationBatcher.class.getName() + ".maxAttachments", 20);
+    /** characters of message text per batch, each text counting twice since it is sent as the fallback too */
+    static final int MAX_LENGTH = Integer.getInteger(NotificationBatcher.class.getName() + ".maxLength", 30000);
+
+    /**
+     * Shutdown milestone reached once the batches still open have been handed to the {@link NotificationDispatcher}.
+     */
+    public static final String FLUSHED = "slack-notification-batcher-flushed";
+
+    /**
+     * Posts a batch to its room.
+     */
+    interface Sender {
+        Delivery send(SlackPayload payload, List<String> entryIds);
+    }
+
+    private static final Map<String, Batch> batches = new HashMap<String, Batch>();
+    /** when each room was last posted to, to tell bursts from isolated notifications */
+    private static final Map<String, Long> lastSent = new HashMap<String, Long>();
+    private static ScheduledThreadPoolExecutor scheduler;
+
+    private NotificationBatcher() {
+    }
+
+    static boolean isEnabled() {
+        return WINDOW > 0;
+    }
+
+    /**
+     * Adds a notification to the batch of its room.
+     *
+     * @param room identifies the team, token and room; notifications are only merged with those of the same room
+     * @param entryIds the outbox entries the notification was recorded as
+     * @param sender posts the batch if this notification starts it
+     * @return the delivery of the batch the notification ended up in
+     */
+    static Future<Delivery> add(String room, SlackPayload payload, List<String> entryIds, Sender sender) {
+        Member member = new Member();
+        Batch ready = null;
+        synchronized (NotificationBatcher.class) {
+            long now = System.currentTimeMillis();
+            Batch batch = batches.get(room);
+            if (batch == null) {
+                batch = new Batch(sender);
+                Long last = lastSent.get(room);
+                if (last != null && now - last < WINDOW) {
+                    batches.put(room, batch);
+                    schedule(room, batch);
+                } else {
+                    ready = batch;
+                }
+            }
+            batch.add(payload, entryIds, member);
+            if (ready == null && batch.isFull()) {
+                batches.remove(room);
+                ready = batch;
+            }
+            if (ready != null) {
+                markSent(room, now);
+            }
+        }
+        if (ready != null) {
+            dispatch(ready);
+        }
+        return member;
+    }
+
+    /**
+     * Combines the deliveries of one notification to several rooms.
+     */
+    static Future<PublishResult> collect(List<Future<Delivery>> deliveries) {
+        return new Collected(deliveries);
+    }
+
+    private static void schedule(final String room, final Batch batch) {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1,
+                    new NamingThreadFactory(new DaemonThreadFactory(), "Slack notification batcher"));
+        }
+        scheduler.schedule(new Runnable() {
+            public void run() {
+                flush(room, batch);
+            }
+        }, WINDOW, TimeUnit.MILLISECONDS);
+    }
+
+    private static void flush(String room, Batch batch) {
+        synchronized (NotificationBatcher.class) {
+            if (batches.get(room) != batch) {
+                // already sent because it was full
+                return;
+            }
+            batches.remove(room);
+            markSent(room, System.currentTimeMillis());
+        }
+        dispatch(batch);
+    }
+
+    /**
+     * Records when the room was posted to, and forgets the rooms that have been quiet for a whole window.
+     */
+    private static void markSent(String room, long now) {
+        lastSent.put(room, now);
+        for (Iterator<Long> it = lastSent.values().iterator(); it.hasNext(); ) {
+            if (now - it.next() >= WINDOW) {
+                it.remove();
+            }
+        }
+    }
+
+    static synchronized boolean isTracked(String room) {
+        return lastSent.containsKey(room);
+    }
+
+    private static void dispatch(final Batch batch) {
+        try {
+            NotificationDispatcher.submit(new Callable<Void>() {
+                public Void call() {
+                    batch.send();
+                    return null;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warning("Slack notification dispatcher is stopped, dropping batched notifications");
+            batch.cancel();
+        }
+    }
+
+    /**
+     * Hands the open batches to the dispatcher right away, before it stops.
+     */
+    @Terminator(attains = FLUSHED)
+    public static void shutdown() {
+        List<Batch> open;
+        synchronized (NotificationBatcher.class) {
+            open = new ArrayList<Batch>(batches.values());
+            batches.clear();
+            lastSent.clear();
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+        for (Batch batch : open) {
+            dispatch(batch);
+        }
+    }
+
+    private static final class Batch {
+        private final Sender sender;
+        private final List<SlackPayload.Attachment> attachments = new ArrayList<SlackPayload.Attachment>();
+        private final List<String> entryIds = new ArrayList<String>();
+        private final List<Member> members = new ArrayList<Member>();
+        private int length;
+
+        Batch(Sender sender) {
+            this.sender = sender;
+        }
+
+        void add(SlackPayload payload, List<String> ids, Member member) {
+            for (SlackPayload.Attachment attachment : payload.getAttachments()) {
+                attachments.add(attachment);
+                // as the fallback and as the field value
+                length += 2 * StringUtils.length(attachment.getText());
+            }
+            entryIds.addAll(ids);
+            members.add(member);
+        }
+
+        boolean isFull() {
+            return attachments.size() >= MAX_ATTACHMENTS || length >= MAX_LENGTH;
+        }
+
+        void send() {
+            if (members.size() > 1) {
+                logger.fine("Sending " + members.size() + " notifications as one post");
+            }
+            try {
+                Delivery delivery = sender.send(new SlackPayload(attachments), entryIds);
+                for (Member member : members) {
+                    member.complete(delivery);
+                }
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Could not send batched Slack notifications", e);
+                for (Member member : members) {
+                    member.fail(e);
+                }
+            }
+        }
+
+        /**
+         * Gives up on the batch, leaving its outbox entries for the replayer.
+         */
+        void cancel() {
+            Outbox outbox = !entryIds.isEmpty() ? Outbox.get() : null;
+            if (outbox != null) {
+                for (String entryId : entryIds) {
+                    outbox.release(entryId);
+                }
+            }
+            for (Member member : members) {
+                member.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Delivery of one notification, completed by its batch.
+     */
+    private static final class Member extends FutureTask<Delivery> {
+        Member() {
+            super(new Callable<Delivery>() {
+                public Delivery call() {
+                    throw new IllegalStateException("completed by its batch");
+                }
+            });
+        }
+
+        void complete(Delivery delivery) {
+            set(delivery);
+        }
+
+        void fail(Throwable t) {
+            setException(t);
+        }
+    }
+
+    private static final class Collected implements Future<PublishResult> {
+        private final List<Future<Delivery>> deliveries;
+
+        Collected(List<Future<Delivery>> deliveries) {
+            this.deliveries = deliveries;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // a batch is shared with other notifications
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public boolean isDone() {
+            for (Future<Delivery> delivery : deliveries) {
+                if (!delivery.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public PublishResult get() throws InterruptedException, ExecutionException {
+            List<Delivery> result = new ArrayList<Delivery>(deliveries.size());
+            for (Future<Delivery> delivery : deliveries) {
+                result.add(delivery.get());
+            }
+            return new PublishResult(result);
+        }
+
+        public PublishResult get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            long end = System.nanoTime() + unit.toNanos(timeout);
+            List<Delivery> result = new ArrayList<Delivery>(deliveries.size());
+            for (Future<Delivery> delivery : deliveries) {
+                result.add(delivery.get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return new PublishResult(result);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package jenkins.plugins.slack;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.init.Terminator;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Bounded, plugin-owned queue that sends Slack notifications from background threads,
+ * so a slow Slack response never holds a build executor.
+ *
+ * The number of workers and the queue capacity can be tuned with the
+ * {@code jenkins.plugins.slack.NotificationDispatcher.workers} and
+ * {@code jenkins.plugins.slack.NotificationDispatcher.queueCapacity} system properties.
+ * When the queue is full the notification is sent on the calling thread instead of being dropped.
+ * Once Jenkins shuts down, new notifications are rejected while the queued ones are sent.
+ *
+ * It also owns the pool used by {@link #fanOut(List)} to post one message to several rooms at once;
+ * {@code jenkins.plugins.slack.NotificationDispatcher.parallelism} bounds how many posts of a single
+ * call run concurrently.
+ */
+public final class NotificationDispatcher {
+
+    private static final Logger logger = Logger.getLogger(NotificationDispatcher.class.getName());
+
+    static final int WORKERS = Integer.getInteger(NotificationDispatcher.class.getName() + ".workers", 4);
+    static final int QUEUE_CAPACITY =
+            Integer.getInteger(NotificationDispatcher.class.getName() + ".queueCapacity", 1000);
+    static final int FAN_OUT_THREADS =
+            Integer.getInteger(NotificationDispatcher.class.getName() + ".fanOutThreads", 8);
+    static final int PARALLELISM = Integer.getInteger(NotificationDispatcher.class.getName() + ".parallelism", 4);
+    static final long SHUTDOWN_TIMEOUT =
+            Long.getLong(NotificationDispatcher.class.getName() + ".shutdownTimeout", 10 * 1000L);
+
+    /**
+     * Shutdown milestone reached once the dispatcher stopped sending notifications.
+     */
+    public static final String STOPPED = "slack-notification-dispatcher-stopped";
+
+    private static ThreadPoolExecutor executor;
+    private static ThreadPoolExecutor fanOutExecutor;
+    private static boolean stopped;
+
+    private NotificationDispatcher() {
+    }
+
+    /**
+     * @throws RejectedExecutionException once Jenkins is shutting down
+     */
+    public static <T> Future<T> submit(Callable<T> task) {
+        return executor().submit(task);
+    }
+
+    /**
+     * Runs all tasks, at most {@link #PARALLELISM} at a time, and returns their results in task order.
+     * A single task is run on the calling thread.
+     *
+     * @throws RejectedExecutionException once Jenkins is shutting down, unless there is a single task
+     */
+    public static <T> List<T> fanOut(List<? extends Callable<T>> tasks) throws InterruptedException {
+        List<T> results = new ArrayList<T>(Collections.<T>nCopies(tasks.size(), null));
+        if (tasks.size() == 1) {
+            try {
+                results.set(0, tasks.get(0).call());
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return results;
+        }
+        CompletionService<Slot<T>> completion = new ExecutorCompletionService<Slot<T>>(fanOutExecutor());
+        List<Future<Slot<T>>> submitted = new ArrayList<Future<Slot<T>>>(tasks.size());
+        int next = 0;
+        int running = 0;
+        try {
+            while (next < tasks.size() || running > 0) {
+                while (next < tasks.size() && running < PARALLELISM) {
+                    submitted.add(completion.submit(new Slot<T>(next, tasks.get(next))));
+                    next++;
+                    running++;
+                }
+                Slot<T> done = completion.take().get();
+                running--;
+                results.set(done.index, done.result);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // only does something if we bailed out early
+            for (Future<Slot<T>> future : submitted) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    private static synchronized ThreadPoolExecutor fanOutExecutor() {
+        if (fanOutExecutor == null) {
+            if (stopped) {
+                throw new RejectedExecutionException("Slack notification dispatcher is stopped");
+            }
+            fanOutExecutor = new ThreadPoolExecutor(FAN_OUT_THREADS, FAN_OUT_THREADS, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "Slack fan-out"));
+            fanOutExecutor.allowCoreThreadTimeOut(true);
+        }
+        return fanOutExecutor;
+    }
+
+    private static synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            if (stopped) {
+                throw new RejectedExecutionException("Slack notification dispatcher is stopped");
+            }
+            executor = new ThreadPoolExecutor(WORKERS, WORKERS, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "Slack notification dispatcher"),
+                    new RunOnCallerWhenFull());
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Number of notifications waiting for a free worker.
+     */
+    public static synchronized int getQueueSize() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * Rejects new notifications and sends the queued ones, for at most {@link #SHUTDOWN_TIMEOUT} milliseconds.
+     */
+    @Terminator(requires = NotificationBatcher.FLUSHED, attains = STOPPED)
+    public static void shutdown() throws InterruptedException {
+        ThreadPoolExecutor current;
+        synchronized (NotificationDispatcher.class) {
+            stopped = true;
+            current = executor;
+            executor = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            if (!current.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                logger.warning("Slack notifications still pending at shutdown: " + current.shutdownNow().size());
+            }
+        }
+        // the queued notifications may still post to several rooms until then
+        ThreadPoolExecutor currentFanOut;
+        synchronized (NotificationDispatcher.class) {
+            currentFanOut = fanOutExecutor;
+            fanOutExecutor = null;
+        }
+        if (currentFanOut != null) {
+            currentFanOut.shutdownNow();
+        }
+    }
+
+    /**
+     * Accepts notifications again for a Jenkins started again in the same JVM, as tests do.
+     */
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static synchronized void start() {
+        stopped = false;
+    }
+
+    private static final class Slot<T> implements Callable<Slot<T>> {
+        private final int index;
+        private final Callable<T> task;
+        private T result;
+
+        Slot(int index, Callable<T> task) {
+            this.index = index;
+            this.task = task;
+        }
+
+        public Slot<T> call() throws Exception {
+            result = task.call();
+            return this;
+        }
+    }
+
+    private static final class RunOnCallerWhenFull implements RejectedExecutionHandler {
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Slack notification dispatcher is stopped");
+            }
+            logger.warning("Slack notification queue is full, sending on the calling thread");
+            r.run();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package jenkins.plugins.slack;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link SlackNotifier} of each project, if it has one, so that builds do not scan the publishers of
+ * their project to find it, which matters most for the many jobs without Slack.
+ *
+ * Projects are looked up lazily, and forgotten when they are saved, renamed, moved or deleted.
+ */
+public final class ProjectNotifiers {
+
+    private static final ConcurrentMap<String, Cached> notifiers = new ConcurrentHashMap<String, Cached>();
+    /** bumped on each invalidation, so that a lookup racing with a configuration change is not cached */
+    private static long invalidations;
+
+    private ProjectNotifiers() {
+    }
+
+    /**
+     * The Slack notifier of the project, null if it has none.
+     */
+    public static SlackNotifier get(AbstractProject<?, ?> project) {
+        String key = project.getFullName();
+        Cached cached = notifiers.get(key);
+        // a reloaded project is a new object with the same name
+        if (cached != null && cached.project == project) {
+            return cached.notifier;
+        }
+        long seen;
+        synchronized (ProjectNotifiers.class) {
+            seen = invalidations;
+        }
+        cached = new Cached(project, project.getPublishersList().get(SlackNotifier.class));
+        synchronized (ProjectNotifiers.class) {
+            if (invalidations == seen) {
+                notifiers.put(key, cached);
+            }
+        }
+        return cached.notifier;
+    }
+
+    static synchronized void invalidate(String fullName) {
+        invalidations++;
+        notifiers.remove(fullName);
+    }
+
+    /**
+     * Forgets the item and, if it is a folder, everything in it.
+     */
+    static synchronized void invalidateTree(String fullName) {
+        invalidations++;
+        notifiers.remove(fullName);
+        String prefix = fullName + "/";
+        for (String key : notifiers.keySet()) {
+            if (key.startsWith(prefix)) {
+                notifiers.remove(key);
+            }
+        }
+    }
+
+    static synchronized void invalidateAll() {
+        invalidations++;
+        notifiers.clear();
+    }
+
+    static int size() {
+        return notifiers.size();
+    }
+
+    private static final class Cached {
+        private final AbstractProject<?, ?> project;
+        private final SlackNotifier notifier;
+
+        Cached(AbstractProject<?, ?> project, SlackNotifier notifier) {
+            this.project = project;
+            this.notifier = notifier;
+        }
+    }
+
+    @Extension
+    public static final class ConfigListener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            // builds are saved far more often than projects, and never change the publishers
+            if (o instanceof AbstractProject) {
+                invalidate(((AbstractProject<?, ?>) o).getFullName());
+            }
+        }
+    }
+
+    @Extension
+    public static final class ProjectListener extends ItemListener {
+        @Override
+        public void onUpdated(Item item) {
+            invalidate(item.getFullName());
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            invalidateTree(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            invalidateTree(oldFullName);
+            invalidateTree(newFullName);
+        }
+
+        @Override
+        public void onLoaded() {
+            invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package jenkins.plugins.slack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of one publish call, with one {@link Delivery} per team domain and room the message was sent to.
+ */
+public final class PublishResult {
+
+    public enum Outcome {
+        SUCCESS,
+        /** Slack answered with a non-200 status code. */
+        HTTP_FAILURE,
+        /** The post could not be completed, e.g. because of a connection error. */
+        ERROR,
+        /** Connecting, waiting for the response or the whole publish call took longer than allowed. */
+        TIMEOUT,
+        /** Not sent because the team's {@link CircuitBreaker} is open. */
+        CIRCUIT_OPEN
+    }
+
+    private final List<Delivery> deliveries;
+
+    public PublishResult(List<Delivery> deliveries) {
+        this.deliveries = Collections.unmodifiableList(new ArrayList<Delivery>(deliveries));
+    }
+
+    public List<Delivery> getDeliveries() {
+        return deliveries;
+    }
+
+    public List<Delivery> getFailures() {
+        List<Delivery> failures = new ArrayList<Delivery>();
+        for (Delivery delivery : deliveries) {
+            if (!delivery.isSuccess()) {
+                failures.add(delivery);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * True when every room received the message.
+     */
+    public boolean isSuccess() {
+        for (Delivery delivery : deliveries) {
+            if (!delivery.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return deliveries.toString();
+    }
+
+    public static final class Delivery {
+        private final String teamDomain;
+        private final String room;
+        private final Outcome outcome;
+        private final int statusCode;
+        private final String detail;
+
+        public Delivery(String teamDomain, String room, Outcome outcome, int statusCode, String detail) {
+            this.teamDomain = teamDomain;
+            this.room = room;
+            this.outcome = outcome;
+            this.statusCode = statusCode;
+            this.detail = detail;
+        }
+
+        public String getTeamDomain() {
+            return teamDomain;
+        }
+
+        public String getRoom() {
+            return room;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * HTTP status code returned by Slack, or 0 if no response was received.
+         */
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+
+        public boolean isSuccess() {
+            return outcome == Outcome.SUCCESS;
+        }
+
+        @Override
+        public String toString() {
+            return room + " on " + teamDomain + ": " + outcome + (statusCode > 0 ? " (" + statusCode + ")" : "")
+                    + (detail != null ? " " + detail : "");
+        }
+    }
+}
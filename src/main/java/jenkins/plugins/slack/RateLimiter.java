@@ -0,0 +1,136 @@
+package jenkins.plugins.slack;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Token bucket that keeps the posts to Slack under Slack's posting rate.
+ *
+ * Buckets are shared plugin-wide: one per channel, at the one post per second Slack allows each channel,
+ * and one per team domain as a ceiling over all of its channels. The rates and burst sizes can be tuned with the
+ * {@code jenkins.plugins.slack.RateLimiter.permitsPerSecond} and {@code .burst} system properties for teams,
+ * and {@code .channelPermitsPerSecond} and {@code .channelBurst} for channels.
+ */
+public class RateLimiter {
+
+    static final double PERMITS_PER_SECOND =
+            Double.parseDouble(System.getProperty(RateLimiter.class.getName() + ".permitsPerSecond", "10"));
+    static final int BURST = Integer.getInteger(RateLimiter.class.getName() + ".burst", 20);
+    static final double CHANNEL_PERMITS_PER_SECOND =
+            Double.parseDouble(System.getProperty(RateLimiter.class.getName() + ".channelPermitsPerSecond", "1"));
+    static final int CHANNEL_BURST = Integer.getInteger(RateLimiter.class.getName() + ".channelBurst", 10);
+
+    /**
+     * Never waits.
+     */
+    public static final RateLimiter UNLIMITED = new RateLimiter(Double.POSITIVE_INFINITY, 1) {
+        @Override
+        public long reserve() {
+            return 0;
+        }
+
+        @Override
+        public boolean tryAcquire(long maxWait) {
+            return true;
+        }
+
+        @Override
+        public void pauseFor(long millis) {
+        }
+    };
+
+    private static final ConcurrentMap<String, RateLimiter> teams = new ConcurrentHashMap<String, RateLimiter>();
+    private static final ConcurrentMap<String, RateLimiter> channels = new ConcurrentHashMap<String, RateLimiter>();
+
+    private final double permitsPerMilli;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerMilli = permitsPerSecond / 1000d;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    public static RateLimiter forTeam(String teamDomain) {
+        return get(teams, teamDomain, PERMITS_PER_SECOND, BURST);
+    }
+
+    public static RateLimiter forChannel(String teamDomain, String roomId) {
+        return get(channels, teamDomain + "\n" + roomId, CHANNEL_PERMITS_PER_SECOND, CHANNEL_BURST);
+    }
+
+    private static RateLimiter get(ConcurrentMap<String, RateLimiter> limiters, String key,
+                                   double permitsPerSecond, int burst) {
+        RateLimiter limiter = limiters.get(key);
+        if (limiter == null) {
+            RateLimiter created = new RateLimiter(permitsPerSecond, burst);
+            limiter = limiters.putIfAbsent(key, created);
+            if (limiter == null) {
+                limiter = created;
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * Takes a permit and returns how long, in milliseconds, the caller must wait before using it.
+     */
+    public synchronized long reserve() {
+        refill();
+        tokens -= 1;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-tokens / permitsPerMilli);
+    }
+
+    /**
+     * Blocks until a permit is available.
+     */
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+
+    /**
+     * Blocks until a permit is available, unless that takes longer than the given time.
+     *
+     * @return false, without taking a permit, if it would have to wait longer than {@code maxWait} milliseconds
+     */
+    public boolean tryAcquire(long maxWait) throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            refill();
+            wait = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerMilli);
+            if (wait > maxWait) {
+                return false;
+            }
+            tokens -= 1;
+        }
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+        return true;
+    }
+
+    /**
+     * Holds every caller back for the given time, e.g. after Slack answered with 429 Too Many Requests.
+     */
+    public synchronized void pauseFor(long millis) {
+        refill();
+        tokens = Math.min(tokens, 0) - millis * permitsPerMilli;
+    }
+
+    private void refill() {
+        long now = System.currentTimeMillis();
+        if (now > lastRefill) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerMilli);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package jenkins.plugins.slack;
+
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.util.DateParseException;
+import org.apache.commons.httpclient.util.DateUtil;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+/**
+ * Decides whether a failed Slack post is worth retrying and how long to wait before doing so.
+ *
+ * Throttling (429), server errors (5xx) and I/O errors are retried with exponential backoff and jitter,
+ * honoring Slack's {@code Retry-After} header. Everything else, e.g. an invalid token, fails right away.
+ */
+public final class RetryPolicy {
+
+    static final RetryPolicy DEFAULT = new RetryPolicy(
+            Integer.getInteger(RetryPolicy.class.getName() + ".maxAttempts", 3),
+            Long.getLong(RetryPolicy.class.getName() + ".baseDelay", 500L),
+            Long.getLong(RetryPolicy.class.getName() + ".maxDelay", 30 * 1000L));
+
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final Random random = new Random();
+
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = Math.max(0, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public boolean isRetryable(int statusCode) {
+        return statusCode == SC_TOO_MANY_REQUESTS
+                || statusCode == HttpStatus.SC_REQUEST_TIMEOUT
+                || statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
+    }
+
+    public boolean isRetryable(Exception e) {
+        if (e instanceof UnknownHostException) {
+            // a misspelled team domain will not resolve on the next attempt either
+            return false;
+        }
+        return e instanceof IOException;
+    }
+
+    public boolean isRateLimited(int statusCode) {
+        return statusCode == SC_TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Delay before the given retry, counting from 1.
+     *
+     * @param retryAfter the delay requested by Slack in milliseconds, or 0 if none was given
+     * @return the delay in milliseconds, or -1 if Slack asked us to wait longer than {@link #getMaxDelay()}
+     */
+    public long delayBeforeRetry(int retry, long retryAfter) {
+        if (retryAfter > maxDelay) {
+            return -1;
+        }
+        long backoff = baseDelay << Math.min(retry - 1, 20);
+        backoff = Math.min(backoff, maxDelay);
+        // "equal jitter": keep half of the backoff, randomize the other half
+        long half = backoff / 2;
+        long delay = half + (half > 0 ? (long) (random.nextDouble() * half) : 0);
+        return Math.max(delay, retryAfter);
+    }
+
+    /**
+     * Parses a {@code Retry-After} header, given either in seconds or as an HTTP date.
+     *
+     * @return the requested delay in milliseconds, 0 if there is none or it cannot be parsed
+     */
+    public static long parseRetryAfter(String value) {
+        if (value == null || value.trim().length() == 0) {
+            return 0;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000L);
+        } catch (NumberFormatException e) {
+            try {
+                return Math.max(0, DateUtil.parseDate(value).getTime() - System.currentTimeMillis());
+            } catch (DateParseException dpe) {
+                return 0;
+            }
+        }
+    }
+}
@@ -4,12 +4,9 @@ import hudson.Extension;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
-import hudson.model.Descriptor;
 import hudson.model.TaskListener;
 import hudson.model.listeners.RunListener;
-import hudson.tasks.Publisher;
 
-import java.util.Map;
 import java.util.logging.Logger;
 
 @Extension
@@ -24,7 +21,12 @@ public class SlackListener extends RunListener<AbstractBuild> {
 
     @Override
     public void onCompleted(AbstractBuild r, TaskListener listener) {
-        getNotifier(r.getProject(), listener).completed(r);
+        FineGrainedNotifier notifier = getNotifier(r.getProject(), listener);
+        notifier.completed(r);
+        if (!(notifier instanceof DisabledNotifier)) {
+            // after notifying, so that the transition of this build is computed from the builds before it
+            BuildTransitionIndex.of(r.getProject()).record(r);
+        }
         super.onCompleted(r, listener);
     }
 
@@ -46,15 +48,15 @@ public class SlackListener extends RunListener<AbstractBuild> {
         // super.onFinalized(r);
     }
 
+    private static final FineGrainedNotifier DISABLED = new DisabledNotifier();
+
     @SuppressWarnings("unchecked")
     FineGrainedNotifier getNotifier(AbstractProject project, TaskListener listener) {
-        Map<Descriptor<Publisher>, Publisher> map = project.getPublishersList().toMap();
-        for (Publisher publisher : map.values()) {
-            if (publisher instanceof SlackNotifier) {
-                return new ActiveNotifier((SlackNotifier) publisher, (BuildListener)listener);
-            }
+        SlackNotifier notifier = ProjectNotifiers.get(project);
+        if (notifier == null) {
+            return DISABLED;
         }
-        return new DisabledNotifier();
+        return new ActiveNotifier(notifier, (BuildListener) listener);
     }
 
 }
@@ -1,12 +1,10 @@
 package jenkins.plugins.slack;
 
-import hudson.EnvVars;
 import hudson.Extension;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
-import hudson.model.Descriptor;
 import hudson.model.listeners.ItemListener;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
@@ -23,7 +21,7 @@ import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.export.Exported;
 
 import java.io.IOException;
-import java.util.Map;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,6 +46,8 @@ public class SlackNotifier extends Notifier {
     private CommitInfoChoice commitInfoChoice;
     private boolean includeCustomMessage;
     private String customMessage;
+    /** compiled from the custom message, a new one comes with every configuration change */
+    private transient MessageTemplate customMessageTemplate;
 
     @Override
     public DescriptorImpl getDescriptor() {
@@ -128,6 +128,14 @@ public class SlackNotifier extends Notifier {
         return customMessage;
     }
 
+    public MessageTemplate getCustomMessageTemplate() {
+        if (customMessageTemplate == null) {
+            // loaded from disk rather than configured
+            customMessageTemplate = MessageTemplate.compile(customMessage);
+        }
+        return customMessageTemplate;
+    }
+
     @DataBoundConstructor
     public SlackNotifier(final String teamDomain, final String authToken, final String room, final String buildServerUrl,
                          final String sendAs, final boolean startNotification, final boolean notifyAborted, final boolean notifyFailure,
@@ -152,6 +160,7 @@ public class SlackNotifier extends Notifier {
         this.commitInfoChoice = commitInfoChoice;
         this.includeCustomMessage = includeCustomMessage;
         this.customMessage = customMessage;
+        this.customMessageTemplate = MessageTemplate.compile(customMessage);
     }
 
     public BuildStepMonitor getRequiredMonitorService() {
@@ -159,6 +168,13 @@ public class SlackNotifier extends Notifier {
     }
 
     public SlackService newSlackService(AbstractBuild r, BuildListener listener) {
+        return newSlackService(new BuildVariableResolver(r, listener));
+    }
+
+    /**
+     * @param variables resolves the variables referenced by the team domain, token and room
+     */
+    public SlackService newSlackService(BuildVariableResolver variables) {
         String teamDomain = this.teamDomain;
         if (StringUtils.isEmpty(teamDomain)) {
             teamDomain = getDescriptor().getTeamDomain();
@@ -172,16 +188,9 @@ public class SlackNotifier extends Notifier {
             room = getDescriptor().getRoom();
         }
 
-        EnvVars env = null;
-        try {
-            env = r.getEnvironment(listener);
-        } catch (Exception e) {
-            listener.getLogger().println("Error retrieving environment vars: " + e.getMessage());
-            env = new EnvVars();
-        }
-        teamDomain = env.expand(teamDomain);
-        authToken = env.expand(authToken);
-        room = env.expand(room);
+        teamDomain = variables.expand(teamDomain);
+        authToken = variables.expand(authToken);
+        room = variables.expand(room);
 
         return new StandardSlackService(teamDomain, authToken, room);
     }
@@ -194,13 +203,8 @@ public class SlackNotifier extends Notifier {
     @Override
     public boolean prebuild(AbstractBuild<?, ?> build, BuildListener listener) {
         if (startNotification) {
-            Map<Descriptor<Publisher>, Publisher> map = build.getProject().getPublishersList().toMap();
-            for (Publisher publisher : map.values()) {
-                if (publisher instanceof SlackNotifier) {
-                    logger.info("Invoking Started...");
-                    new ActiveNotifier((SlackNotifier) publisher, listener).started(build);
-                }
-            }
+            logger.info("Invoking Started...");
+            new ActiveNotifier(this, listener).started(build);
         }
         return super.prebuild(build, listener);
     }
@@ -213,11 +217,17 @@ public class SlackNotifier extends Notifier {
         private String room;
         private String buildServerUrl;
         private String sendAs;
+        /** in seconds, 0 for the default */
+        private int connectTimeout;
+        private int readTimeout;
+        private int timeout;
+        private boolean compoundMessage;
 
         public static final CommitInfoChoice[] COMMIT_INFO_CHOICES = CommitInfoChoice.values();
 
         public DescriptorImpl() {
             load();
+            HttpClientPool.setConnectTimeout(getTimeouts().getConnectTimeout());
         }
 
         public String getTeamDomain() {
@@ -246,6 +256,43 @@ public class SlackNotifier extends Notifier {
             return sendAs;
         }
 
+        public int getConnectTimeout() {
+            return getTimeouts().getConnectTimeout() / 1000;
+        }
+
+        public int getReadTimeout() {
+            return getTimeouts().getReadTimeout() / 1000;
+        }
+
+        /**
+         * Deadline of a whole publish call, retries included, in seconds.
+         */
+        public int getTimeout() {
+            return (int) (getTimeouts().getDeadline() / 1000);
+        }
+
+        public Timeouts getTimeouts() {
+            return Timeouts.DEFAULT
+                    .withConnectTimeout(connectTimeout * 1000)
+                    .withReadTimeout(readTimeout * 1000)
+                    .withDeadline(timeout * 1000L);
+        }
+
+        /**
+         * Whether the status, test summary and commits of a completed build are sent as one post per room,
+         * rather than the status and the commits as two.
+         */
+        public boolean isCompoundMessage() {
+            return compoundMessage;
+        }
+
+        /**
+         * State of the Slack teams posted to since startup, for the global configuration page.
+         */
+        public List<CircuitBreaker> getCircuitBreakers() {
+            return CircuitBreaker.all();
+        }
+
         public boolean isApplicable(Class<? extends AbstractProject> aClass) {
             return true;
         }
@@ -279,6 +326,10 @@ public class SlackNotifier extends Notifier {
             room = sr.getParameter("slackRoom");
             buildServerUrl = sr.getParameter("slackBuildServerUrl");
             sendAs = sr.getParameter("slackSendAs");
+            connectTimeout = parseSeconds(sr.getParameter("slackConnectTimeout"));
+            readTimeout = parseSeconds(sr.getParameter("slackReadTimeout"));
+            timeout = parseSeconds(sr.getParameter("slackTimeout"));
+            compoundMessage = "true".equals(sr.getParameter("slackCompoundMessage"));
             if(buildServerUrl == null || buildServerUrl == "") {
                 JenkinsLocationConfiguration jenkinsConfig = new JenkinsLocationConfiguration();
                 buildServerUrl = jenkinsConfig.getUrl();
@@ -287,9 +338,18 @@ public class SlackNotifier extends Notifier {
                 buildServerUrl = buildServerUrl + "/";
             }
             save();
+            HttpClientPool.setConnectTimeout(getTimeouts().getConnectTimeout());
             return super.configure(sr, formData);
         }
 
+        private static int parseSeconds(String value) {
+            try {
+                return Math.max(0, Integer.parseInt(StringUtils.trim(value)));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
         SlackService getSlackService(final String teamDomain, final String authToken, final String room) {
             return new StandardSlackService(teamDomain, authToken, room);
         }
@@ -0,0 +1,110 @@
+package jenkins.plugins.slack;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Body of a Slack post, shared by every room it is sent to.
+ *
+ * The attachments are serialized once, with the Jackson streaming generator, and only the
+ * {@code channel} property is spliced in front of them for each room.
+ */
+public final class SlackPayload {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final List<Attachment> attachments;
+    private final String sharedBody;
+
+    public SlackPayload(List<Attachment> attachments) {
+        this.attachments = Collections.unmodifiableList(new ArrayList<Attachment>(attachments));
+        this.sharedBody = serialize();
+    }
+
+    public static SlackPayload of(String message, String color) {
+        return new SlackPayload(Collections.singletonList(new Attachment(message, color)));
+    }
+
+    public List<Attachment> getAttachments() {
+        return attachments;
+    }
+
+    /**
+     * JSON body for the given channel.
+     */
+    public String forChannel(String channel) {
+        String body = sharedBody;
+        StringBuilder json = new StringBuilder(body.length() + channel.length() + 16);
+        json.append("{\"channel\":\"");
+        json.append(JsonStringEncoder.getInstance().quoteAsString(channel));
+        json.append("\",");
+        // skip the opening brace of the shared body
+        json.append(body, 1, body.length());
+        return json.toString();
+    }
+
+    private String serialize() {
+        StringWriter out = new StringWriter(256);
+        try {
+            JsonGenerator json = JSON_FACTORY.createGenerator(out);
+            json.writeStartObject();
+            json.writeArrayFieldStart("attachments");
+            for (Attachment attachment : attachments) {
+                attachment.writeTo(json);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.close();
+        } catch (IOException e) {
+            // a StringWriter does not throw
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    public static final class Attachment {
+        private final String text;
+        private final String color;
+
+        @JsonCreator
+        public Attachment(@JsonProperty("text") String text, @JsonProperty("color") String color) {
+            this.text = text;
+            this.color = color;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getColor() {
+            return color;
+        }
+
+        void writeTo(JsonGenerator json) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("fallback", text);
+            json.writeStringField("color", color);
+            json.writeArrayFieldStart("fields");
+            json.writeStartObject();
+            json.writeBooleanField("short", false);
+            json.writeStringField("value", text);
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeArrayFieldStart("mrkdwn_in");
+            json.writeString("pretext");
+            json.writeString("text");
+            json.writeString("fields");
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+}
@@ -1,7 +1,29 @@
 package jenkins.plugins.slack;
 
+import java.util.concurrent.Future;
+
 public interface SlackService {
     boolean publish(String message);
 
     boolean publish(String message, String color);
+
+    /**
+     * Posts the message to every configured team and room, in parallel, and reports the outcome per room.
+     */
+    PublishResult publishToAll(String message, String color);
+
+    /**
+     * Queues the message on the {@link NotificationDispatcher} and returns immediately.
+     */
+    Future<PublishResult> publishAsync(String message, String color);
+
+    /**
+     * Posts a message made of several attachments, as a single post per room.
+     */
+    PublishResult publishToAll(SlackPayload payload);
+
+    /**
+     * Queues a message made of several attachments on the {@link NotificationDispatcher} and returns immediately.
+     */
+    Future<PublishResult> publishAsync(SlackPayload payload);
 }
@@ -1,34 +1,67 @@
 package jenkins.plugins.slack;
 
+import org.apache.commons.httpclient.ConnectTimeoutException;
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.StringRequestEntity;
 
-import org.json.JSONObject;
-import org.json.JSONArray;
+import org.apache.commons.lang.StringUtils;
 
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import jenkins.model.Jenkins;
-import hudson.ProxyConfiguration;
-import org.apache.commons.httpclient.UsernamePasswordCredentials;
-import org.apache.commons.httpclient.auth.AuthScope;
+import jenkins.plugins.slack.PublishResult.Delivery;
+import jenkins.plugins.slack.PublishResult.Outcome;
+import jenkins.plugins.slack.outbox.Outbox;
+import jenkins.plugins.slack.outbox.OutboxEntry;
 
 public class StandardSlackService implements SlackService {
 
     private static final Logger logger = Logger.getLogger(StandardSlackService.class.getName());
 
+    private static final String SEPARATORS = "[,; ]+";
+
+    /**
+     * Send the payload as an {@code application/json} body instead of the form encoded {@code payload} parameter.
+     */
+    static final boolean JSON_BODY = Boolean.getBoolean(StandardSlackService.class.getName() + ".jsonBody");
+
     private String host = "slack.com";
-    private String teamDomain;
-    private String token;
+    private String[] teamDomains;
+    private String[] tokens;
     private String[] roomIds;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    private final Timeouts timeouts;
 
+    /**
+     * Several team domains may be given, separated like rooms. They are paired with the tokens
+     * in the same order; a single token is used for every team.
+     */
     public StandardSlackService(String teamDomain, String token, String roomId) {
+        this(teamDomain, token, roomId, Timeouts.global());
+    }
+
+    public StandardSlackService(String teamDomain, String token, String roomId, Timeouts timeouts) {
         super();
-        this.teamDomain = teamDomain;
-        this.token = token;
-        this.roomIds = roomId.split("[,; ]+");
+        this.timeouts = timeouts;
+        this.teamDomains = StringUtils.defaultString(teamDomain).split(SEPARATORS);
+        this.tokens = StringUtils.defaultString(token).split(SEPARATORS);
+        this.roomIds = roomId.split(SEPARATORS);
+        if (tokens.length > 1 && tokens.length != teamDomains.length) {
+            logger.warning("Got " + teamDomains.length + " team domains but " + tokens.length
+                    + " tokens, the last token is used for the remaining teams");
+        }
     }
 
     public boolean publish(String message) {
@@ -36,81 +69,291 @@ public class StandardSlackService implements SlackService {
     }
 
     public boolean publish(String message, String color) {
-        boolean result = true;
-        for (String roomId : roomIds) {
-            String url = "https://" + teamDomain + "." + host + "/services/hooks/jenkins-ci?token=" + token;
-            logger.info("Posting: to " + roomId + " on " + teamDomain + " using " + url +": " + message + " " + color);
+        return publishToAll(message, color).isSuccess();
+    }
+
+    public PublishResult publishToAll(String message, String color) {
+        return publishToAll(SlackPayload.of(message, color));
+    }
+
+    public Future<PublishResult> publishAsync(String message, String color) {
+        return publishAsync(SlackPayload.of(message, color));
+    }
+
+    /**
+     * Posts right away; not recorded in the outbox, since the caller is told whether the post went through.
+     */
+    public PublishResult publishToAll(SlackPayload payload) {
+        return deliver(payload, targets(payload, null));
+    }
+
+    public Future<PublishResult> publishAsync(final SlackPayload payload) {
+        // recorded in the outbox before being queued, so a restart does not lose what is waiting in the queue
+        final List<Target> targets = targets(payload, Outbox.get());
+        if (!NotificationBatcher.isEnabled()) {
+            try {
+                return NotificationDispatcher.submit(new Callable<PublishResult>() {
+                    public PublishResult call() {
+                        return deliver(payload, targets);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // what the outbox recorded is sent once Jenkins is back
+                logger.warning("Not posting to Slack, Jenkins is shutting down");
+                FutureTask<PublishResult> rejected = new FutureTask<PublishResult>(new Callable<PublishResult>() {
+                    public PublishResult call() {
+                        return rejected(targets);
+                    }
+                });
+                rejected.run();
+                return rejected;
+            }
+        }
+        List<Future<Delivery>> deliveries = new ArrayList<Future<Delivery>>();
+        for (final Target target : targets) {
+            String room = target.teamDomain + "\n" + target.token + "\n" + target.roomId;
+            deliveries.add(NotificationBatcher.add(room, payload, target.entryIds, new NotificationBatcher.Sender() {
+                public Delivery send(SlackPayload batched, List<String> entryIds) {
+                    Target merged = new Target(target.teamDomain, target.token, target.roomId, entryIds);
+                    return post(merged, batched, Deadline.after(timeouts.getDeadline()));
+                }
+            }));
+        }
+        return NotificationBatcher.collect(deliveries);
+    }
+
+    /**
+     * Sends an entry left pending in the outbox to its room, using the token this service was created with.
+     */
+    public Delivery resend(OutboxEntry entry) {
+        return post(new Target(teamDomains[0], tokens[0], entry.getRoom(), Collections.singletonList(entry.getId())),
+                entry.getPayload(),
+                Deadline.after(timeouts.getDeadline()));
+    }
+
+    /**
+     * Fails every target, leaving its outbox entries for the replayer.
+     */
+    private PublishResult rejected(List<Target> targets) {
+        List<Delivery> deliveries = new ArrayList<Delivery>(targets.size());
+        for (Target target : targets) {
+            deliveries.add(finish(target,
+                    new Delivery(target.teamDomain, target.roomId, Outcome.ERROR, 0, "Jenkins is shutting down"), true));
+        }
+        return new PublishResult(deliveries);
+    }
+
+    /**
+     * @param outbox where the post to each room is recorded, or null if it is not
+     */
+    private List<Target> targets(SlackPayload payload, Outbox outbox) {
+        List<Target> targets = new ArrayList<Target>();
+        for (int i = 0; i < teamDomains.length; i++) {
+            String teamDomain = teamDomains[i];
+            String token = tokens[Math.min(i, tokens.length - 1)];
+            for (String roomId : roomIds) {
+                String entryId = outbox != null ? outbox.record(teamDomain, token, roomId, payload) : null;
+                targets.add(new Target(teamDomain, token, roomId,
+                        entryId != null ? Collections.singletonList(entryId) : Collections.<String>emptyList()));
+            }
+        }
+        return targets;
+    }
+
+    private PublishResult deliver(final SlackPayload payload, List<Target> targets) {
+        // one deadline for the whole call, whichever room the time is spent on
+        final Deadline deadline = Deadline.after(timeouts.getDeadline());
+        List<Callable<Delivery>> posts = new ArrayList<Callable<Delivery>>();
+        for (final Target target : targets) {
+            posts.add(new Callable<Delivery>() {
+                public Delivery call() {
+                    return post(target, payload, deadline);
+                }
+            });
+        }
+        try {
+            return new PublishResult(NotificationDispatcher.fanOut(posts));
+        } catch (RejectedExecutionException e) {
+            logger.warning("Not posting to Slack, Jenkins is shutting down");
+            return rejected(targets);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Interrupted while posting to Slack", e);
+            List<Delivery> interrupted = new ArrayList<Delivery>();
+            for (Target target : targets) {
+                interrupted.add(new Delivery(target.teamDomain, target.roomId, Outcome.ERROR, 0, "interrupted"));
+            }
+            return new PublishResult(interrupted);
+        }
+    }
+
+    private Delivery post(Target target, SlackPayload payload, Deadline deadline) {
+        String teamDomain = target.teamDomain;
+        String roomId = target.roomId;
+        String url = "https://" + teamDomain + "." + host + "/services/hooks/jenkins-ci?token=" + target.token;
+        String body = payload.forChannel(roomId);
+        logger.info("Posting: to " + roomId + " on " + teamDomain + " using " + url +": " + body);
+        RateLimiter channelRateLimiter = getRateLimiter(teamDomain, roomId);
+        RateLimiter rateLimiter = getRateLimiter(teamDomain);
+        CircuitBreaker circuitBreaker = getCircuitBreaker(teamDomain);
+
+        for (int attempt = 1; ; attempt++) {
+            if (deadline.isExpired()) {
+                logger.warning("Slack post to " + roomId + " on " + teamDomain + " ran out of time");
+                return finish(target, new Delivery(teamDomain, roomId, Outcome.TIMEOUT, 0, "deadline exceeded"), true);
+            }
+            Delivery delivery;
+            boolean retryable;
+            long retryAfter = 0;
             HttpClient client = getHttpClient();
             PostMethod post = new PostMethod(url);
-            JSONObject json = new JSONObject();
-
+            boolean permitted = false;
+            // whether the attempt tells anything about Slack being reachable, null if it does not
+            Boolean reachable = null;
             try {
-                JSONObject field = new JSONObject();
-                field.put("short", false);
-                field.put("value", message);
-
-                JSONArray fields = new JSONArray();
-                fields.put(field);
-
-                JSONObject attachment = new JSONObject();
-                attachment.put("fallback", message);
-                attachment.put("color", color);
-                attachment.put("fields", fields);
-                JSONArray mrkdwn = new JSONArray();
-                mrkdwn.put("pretext");
-                mrkdwn.put("text");
-                mrkdwn.put("fields");
-                attachment.put("mrkdwn_in", mrkdwn);
-                JSONArray attachments = new JSONArray();
-                attachments.put(attachment);
-
-                json.put("channel", roomId);
-                json.put("attachments", attachments);
-
-                post.addParameter("payload", json.toString());
-                post.getParams().setContentCharset("UTF-8");
+                if (circuitBreaker.isOpen()) {
+                    return circuitOpen(target);
+                }
+                // waited for before taking the breaker, whose half-open probe must not be held while sleeping
+                if (!channelRateLimiter.tryAcquire(deadline.remaining())
+                        || !rateLimiter.tryAcquire(deadline.remaining())) {
+                    logger.warning("Slack post to " + roomId + " on " + teamDomain + " is throttled past its deadline");
+                    return finish(target, new Delivery(teamDomain, roomId, Outcome.TIMEOUT, 0, "deadline exceeded"), true);
+                }
+                if (!circuitBreaker.allowRequest()) {
+                    return circuitOpen(target);
+                }
+                permitted = true;
+                client.getParams().setConnectionManagerTimeout(deadline.clamp(timeouts.getReadTimeout()));
+                post.getParams().setSoTimeout(deadline.clamp(timeouts.getReadTimeout()));
+                if (JSON_BODY) {
+                    post.setRequestEntity(new StringRequestEntity(body, "application/json", "UTF-8"));
+                } else {
+                    post.addParameter("payload", body);
+                    post.getParams().setContentCharset("UTF-8");
+                }
                 int responseCode = client.executeMethod(post);
+                reachable = responseCode < HttpStatus.SC_INTERNAL_SERVER_ERROR;
                 String response = post.getResponseBodyAsString();
-                if(responseCode != HttpStatus.SC_OK) {
-                    logger.log(Level.WARNING, "Slack post may have failed. Response: " + response);
-                    result = false;
-                }
-                else {
+                if (responseCode == HttpStatus.SC_OK) {
                     logger.info("Posting succeeded");
+                    return finish(target, new Delivery(teamDomain, roomId, Outcome.SUCCESS, responseCode, null), false);
                 }
+                Header retryAfterHeader = post.getResponseHeader("Retry-After");
+                retryAfter = RetryPolicy.parseRetryAfter(retryAfterHeader != null ? retryAfterHeader.getValue() : null);
+                if (retryPolicy.isRateLimited(responseCode)) {
+                    channelRateLimiter.pauseFor(retryAfter);
+                }
+                delivery = new Delivery(teamDomain, roomId, Outcome.HTTP_FAILURE, responseCode, response);
+                retryable = retryPolicy.isRetryable(responseCode);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return finish(target, new Delivery(teamDomain, roomId, Outcome.ERROR, 0, "interrupted"), true);
             } catch (Exception e) {
-                logger.log(Level.WARNING, "Error posting to Slack", e);
-                result = false;
+                logger.log(Level.FINE, "Error posting to Slack", e);
+                if (e instanceof IOException) {
+                    reachable = false;
+                }
+                Outcome outcome = isTimeout(e) ? Outcome.TIMEOUT : Outcome.ERROR;
+                delivery = new Delivery(teamDomain, roomId, outcome, 0, e.getMessage());
+                retryable = retryPolicy.isRetryable(e);
             } finally {
                 post.releaseConnection();
+                if (permitted) {
+                    if (reachable == null) {
+                        circuitBreaker.release();
+                    } else if (reachable) {
+                        circuitBreaker.recordSuccess();
+                    } else {
+                        circuitBreaker.recordFailure();
+                    }
+                }
+            }
+
+            long delay = retryable && attempt < retryPolicy.getMaxAttempts()
+                    ? retryPolicy.delayBeforeRetry(attempt, retryAfter) : -1;
+            if (delay >= deadline.remaining()) {
+                logger.fine("Not retrying the Slack post, the next attempt would start after the deadline");
+                delay = -1;
+            }
+            if (delay < 0) {
+                logger.log(Level.WARNING, "Slack post may have failed after " + attempt + " attempt(s): " + delivery);
+                return finish(target, delivery, retryable);
+            }
+            logger.info("Slack post failed (" + delivery + "), retrying in " + delay + "ms");
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return finish(target, delivery, true);
             }
         }
-        return result;
     }
 
-    protected HttpClient getHttpClient() {
-        HttpClient client = new HttpClient();
-        if (Jenkins.getInstance() != null) {
-            ProxyConfiguration proxy = Jenkins.getInstance().proxy;
-            if (proxy != null) {
-                client.getHostConfiguration().setProxy(proxy.name, proxy.port);
-                String username = proxy.getUserName();
-                String password = proxy.getPassword();
-                // Consider it to be passed if username specified. Sufficient?
-                if (username != null && !"".equals(username.trim())) {
-                    logger.info("Using proxy authentication (user=" + username + ")");
-                    // http://hc.apache.org/httpclient-3.x/authentication.html#Proxy_Authentication
-                    // and
-                    // http://svn.apache.org/viewvc/httpcomponents/oac.hc3x/trunk/src/examples/BasicAuthenticationExample.java?view=markup
-                    client.getState().setProxyCredentials(AuthScope.ANY,
-                        new UsernamePasswordCredentials(username, password));
+    private Delivery circuitOpen(Target target) {
+        logger.fine("Not posting to " + target.roomId + " on " + target.teamDomain + ", the circuit breaker is open");
+        return finish(target, new Delivery(target.teamDomain, target.roomId, Outcome.CIRCUIT_OPEN, 0, "circuit open"),
+                true);
+    }
+
+    /**
+     * Settles the outbox entries of the target: kept for a later attempt if the failure was transient, done otherwise.
+     */
+    private Delivery finish(Target target, Delivery delivery, boolean retryLater) {
+        Outbox outbox = !target.entryIds.isEmpty() ? Outbox.get() : null;
+        if (outbox != null) {
+            for (String entryId : target.entryIds) {
+                if (retryLater) {
+                    outbox.release(entryId);
+                } else {
+                    outbox.done(entryId);
                 }
             }
         }
-        return client;
+        return delivery;
+    }
+
+    private static boolean isTimeout(Exception e) {
+        // ConnectTimeoutException also covers waiting too long for a pooled connection
+        return e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException;
+    }
+
+    protected CircuitBreaker getCircuitBreaker(String teamDomain) {
+        return CircuitBreaker.forTeam(teamDomain);
+    }
+
+    protected RateLimiter getRateLimiter(String teamDomain) {
+        return RateLimiter.forTeam(teamDomain);
+    }
+
+    protected RateLimiter getRateLimiter(String teamDomain, String roomId) {
+        return RateLimiter.forChannel(teamDomain, roomId);
+    }
+
+    protected HttpClient getHttpClient() {
+        return HttpClientPool.newHttpClient();
     }
 
     void setHost(String host) {
         this.host = host;
     }
+
+    void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    private static final class Target {
+        private final String teamDomain;
+        private final String token;
+        private final String roomId;
+        /** ids of the outbox entries sent in this post, several when notifications were batched */
+        private final List<String> entryIds;
+
+        Target(String teamDomain, String token, String roomId, List<String> entryIds) {
+            this.teamDomain = teamDomain;
+            this.token = token;
+            this.roomId = roomId;
+            this.entryIds = entryIds;
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package jenkins.plugins.slack;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Timeouts applied to Slack posts, in milliseconds.
+ *
+ * The connect and read timeouts bound a single HTTP request, the deadline bounds a whole publish call,
+ * retries and rate limiting included. The defaults can be changed with the
+ * {@code jenkins.plugins.slack.Timeouts.connectTimeout}, {@code .readTimeout} and {@code .deadline}
+ * system properties and are overridden by the global configuration. Connections are shared by all posts, so
+ * only the connect timeout of the global configuration applies, see {@link HttpClientPool#setConnectTimeout(int)}.
+ */
+public final class Timeouts {
+
+    public static final Timeouts DEFAULT = new Timeouts(
+            Integer.getInteger(Timeouts.class.getName() + ".connectTimeout", 10 * 1000),
+            Integer.getInteger(Timeouts.class.getName() + ".readTimeout", 30 * 1000),
+            Long.getLong(Timeouts.class.getName() + ".deadline", 2 * 60 * 1000L));
+
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final long deadline;
+
+    public Timeouts(int connectTimeout, int readTimeout, long deadline) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.deadline = deadline;
+    }
+
+    /**
+     * The timeouts of the global Slack configuration, or the defaults if Jenkins is not running.
+     */
+    public static Timeouts global() {
+        Jenkins jenkins = Jenkins.getInstance();
+        SlackNotifier.DescriptorImpl descriptor =
+                jenkins != null ? jenkins.getDescriptorByType(SlackNotifier.DescriptorImpl.class) : null;
+        Timeouts timeouts = descriptor != null ? descriptor.getTimeouts() : null;
+        return timeouts != null ? timeouts : DEFAULT;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Same timeouts with another connect timeout, unless the given one is not positive.
+     */
+    public Timeouts withConnectTimeout(int connectTimeout) {
+        return connectTimeout > 0 ? new Timeouts(connectTimeout, readTimeout, deadline) : this;
+    }
+
+    /**
+     * Same timeouts with another read timeout, unless the given one is not positive.
+     */
+    public Timeouts withReadTimeout(int readTimeout) {
+        return readTimeout > 0 ? new Timeouts(connectTimeout, readTimeout, deadline) : this;
+    }
+
+    /**
+     * Same timeouts with another deadline, unless the given one is not positive.
+     */
+    public Timeouts withDeadline(long deadline) {
+        return deadline > 0 ? new Timeouts(connectTimeout, readTimeout, deadline) : this;
+    }
+
+    @Override
+    public String toString() {
+        return "connect " + connectTimeout + "ms, read " + readTimeout + "ms, deadline " + deadline + "ms";
+    }
+}
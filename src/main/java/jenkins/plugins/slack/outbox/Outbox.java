@@ -0,0 +1,167 @@
+package jenkins.plugins.slack.outbox;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.init.Terminator;
+import hudson.util.Secret;
+import jenkins.model.Jenkins;
+import jenkins.plugins.slack.NotificationDispatcher;
+import jenkins.plugins.slack.SlackPayload;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Durable record of the Slack posts that have not been confirmed yet, kept under
+ * {@code JENKINS_HOME/slack-outbox}.
+ *
+ * Every notification sent in the background is recorded here before it is sent and marked done once Slack
+ * accepted it, or rejected it for good. Whatever is left pending, because Jenkins went down or Slack was
+ * unavailable, is sent again by the {@link OutboxReplayer}. Entries being sent are tracked in memory so the
+ * replayer never sends an entry that is still in flight.
+ */
+public final class Outbox {
+
+    private static final Logger logger = Logger.getLogger(Outbox.class.getName());
+
+    static final long MAX_SEGMENT_SIZE = Long.getLong(Outbox.class.getName() + ".maxSegmentSize", 1024 * 1024L);
+    static final long MAX_AGE = Long.getLong(Outbox.class.getName() + ".maxAge", 24 * 60 * 60 * 1000L);
+
+    private static Outbox instance;
+    private static boolean closed;
+
+    private final OutboxJournal journal;
+    private final Set<String> inFlight = new HashSet<String>();
+
+    Outbox(File dir) throws IOException {
+        this.journal = new OutboxJournal(dir, MAX_SEGMENT_SIZE, MAX_AGE);
+    }
+
+    /**
+     * The outbox of this Jenkins instance, or null if there is none, e.g. in unit tests,
+     * during shutdown or if the directory cannot be written.
+     */
+    public static synchronized Outbox get() {
+        if (instance == null && !closed) {
+            Jenkins jenkins = Jenkins.getInstance();
+            if (jenkins == null) {
+                return null;
+            }
+            try {
+                instance = new Outbox(new File(jenkins.getRootDir(), "slack-outbox"));
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not open the Slack outbox, notifications will not survive a restart", e);
+                closed = true;
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Records a message for one room before it is sent. The entry is considered in flight until
+     * {@link #done(String)} or {@link #release(String)} is called.
+     *
+     * @return the id of the entry, or null if it could not be recorded
+     */
+    public synchronized String record(String teamDomain, String token, String room, SlackPayload payload) {
+        OutboxEntry entry = OutboxEntry.create(teamDomain, seal(token), room, payload);
+        try {
+            journal.append(entry);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not record Slack notification in the outbox", e);
+            return null;
+        }
+        inFlight.add(entry.getId());
+        return entry.getId();
+    }
+
+    /**
+     * Marks the entry as delivered, or as not deliverable at all.
+     */
+    public synchronized void done(String id) {
+        inFlight.remove(id);
+        try {
+            journal.markDone(id);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not update the Slack outbox, " + id + " may be sent again", e);
+        }
+    }
+
+    /**
+     * Leaves the entry pending so that it is sent again later.
+     */
+    public synchronized void release(String id) {
+        inFlight.remove(id);
+    }
+
+    /**
+     * Pending entries that are not in flight; they are marked in flight before being returned.
+     */
+    public synchronized List<OutboxEntry> claimPending() {
+        List<OutboxEntry> claimed = new ArrayList<OutboxEntry>();
+        long now = System.currentTimeMillis();
+        for (OutboxEntry entry : journal.pending()) {
+            if (inFlight.contains(entry.getId())) {
+                continue;
+            }
+            if (now - entry.getCreated() > MAX_AGE) {
+                logger.warning("Dropping Slack notification " + entry + " from the outbox, it is too old");
+                done(entry.getId());
+                continue;
+            }
+            inFlight.add(entry.getId());
+            claimed.add(entry);
+        }
+        return claimed;
+    }
+
+    public synchronized int getPendingCount() {
+        return journal.pending().size();
+    }
+
+    /**
+     * Token as stored on disk.
+     */
+    String seal(String token) {
+        return Secret.fromString(token).getEncryptedValue();
+    }
+
+    public String unseal(String token) {
+        Secret secret = Secret.decrypt(token);
+        return secret != null ? secret.getPlainText() : token;
+    }
+
+    /**
+     * Runs once the dispatcher stopped: whatever it could not send in time is already pending in the
+     * journal, which only needs to be flushed.
+     */
+    @Terminator(requires = NotificationDispatcher.STOPPED)
+    public static synchronized void shutdown() {
+        closed = true;
+        if (instance == null) {
+            return;
+        }
+        try {
+            instance.journal.flush();
+            instance.journal.close();
+            logger.info("Slack outbox closed with " + instance.journal.pending().size() + " pending notification(s)");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not close the Slack outbox", e);
+        }
+        instance = null;
+    }
+
+    /**
+     * Opens the outbox again for a Jenkins started again in the same JVM, as tests do.
+     */
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static synchronized void start() {
+        closed = false;
+    }
+}
@@ -0,0 +1,84 @@
+package jenkins.plugins.slack.outbox;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jenkins.plugins.slack.SlackPayload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One message for one room, as recorded in the {@link Outbox} journal.
+ *
+ * The id doubles as idempotency key: an entry is sent until it has been marked done once,
+ * and never twice concurrently.
+ */
+public final class OutboxEntry {
+
+    private final String id;
+    private final long created;
+    private final String teamDomain;
+    private final String token;
+    private final String room;
+    private final List<SlackPayload.Attachment> attachments;
+
+    @JsonCreator
+    public OutboxEntry(@JsonProperty("id") String id,
+                       @JsonProperty("created") long created,
+                       @JsonProperty("teamDomain") String teamDomain,
+                       @JsonProperty("token") String token,
+                       @JsonProperty("room") String room,
+                       @JsonProperty("attachments") List<SlackPayload.Attachment> attachments) {
+        this.id = id;
+        this.created = created;
+        this.teamDomain = teamDomain;
+        this.token = token;
+        this.room = room;
+        this.attachments = Collections.unmodifiableList(new ArrayList<SlackPayload.Attachment>(attachments));
+    }
+
+    /**
+     * @param token the token as it should be stored on disk, see {@link Outbox#seal(String)}
+     */
+    public static OutboxEntry create(String teamDomain, String token, String room, SlackPayload payload) {
+        return new OutboxEntry(UUID.randomUUID().toString(), System.currentTimeMillis(), teamDomain, token, room,
+                payload.getAttachments());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public String getTeamDomain() {
+        return teamDomain;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getRoom() {
+        return room;
+    }
+
+    public List<SlackPayload.Attachment> getAttachments() {
+        return attachments;
+    }
+
+    @JsonIgnore
+    public SlackPayload getPayload() {
+        return new SlackPayload(attachments);
+    }
+
+    @Override
+    public String toString() {
+        return id + " (" + room + " on " + teamDomain + ")";
+    }
+}
@@ -0,0 +1,276 @@
+package jenkins.plugins.slack.outbox;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only, segmented journal of {@link OutboxEntry outbox entries}.
+ *
+ * Each segment is a text file with one JSON record per line: either a pending entry or the id of an
+ * entry that is done. When the active segment grows past the size limit a new one is started and the
+ * oldest segments are compacted: entries still pending are copied forward and the old file is deleted.
+ * Copied entries do not count towards the size limit of the active segment, so a large backlog of pending
+ * entries is copied once per segment worth of new records rather than on every record.
+ * Segments are only ever deleted oldest first, so a "done" record can never outlive the pending record
+ * it refers to. Not thread safe, {@link Outbox} serializes access.
+ */
+class OutboxJournal {
+
+    private static final Logger logger = Logger.getLogger(OutboxJournal.class.getName());
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SUFFIX = ".log";
+
+    static final String PENDING = "pending";
+    static final String DONE = "done";
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private final File dir;
+    private final long maxSegmentSize;
+    private final long maxAge;
+
+    /** segment number to number of pending entries whose latest copy lives in it */
+    private final TreeMap<Long, Integer> live = new TreeMap<Long, Integer>();
+    private final Map<String, OutboxEntry> pending = new LinkedHashMap<String, OutboxEntry>();
+    private final Map<String, Long> segmentOf = new HashMap<String, Long>();
+
+    private long active;
+    /** bytes of new records in the active segment, entries carried forward by compaction excluded */
+    private long activeSize;
+    private int rotations;
+    private Writer writer;
+
+    OutboxJournal(File dir, long maxSegmentSize, long maxAge) throws IOException {
+        this.dir = dir;
+        this.maxSegmentSize = maxSegmentSize;
+        this.maxAge = maxAge;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        load();
+    }
+
+    private void load() throws IOException {
+        for (long segment : segments()) {
+            live.put(segment, 0);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file(segment)), UTF_8));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.length() == 0) {
+                        continue;
+                    }
+                    Record record;
+                    try {
+                        record = mapper.readValue(line, Record.class);
+                    } catch (IOException e) {
+                        // most likely a record cut short by a crash
+                        logger.log(Level.WARNING, "Skipping unreadable outbox record in " + file(segment), e);
+                        continue;
+                    }
+                    if (PENDING.equals(record.op) && record.entry != null) {
+                        forget(record.entry.getId());
+                        remember(record.entry, segment);
+                    } else if (DONE.equals(record.op)) {
+                        forget(record.id);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        active = live.isEmpty() ? 1 : live.lastKey();
+        live.put(active, live.containsKey(active) ? live.get(active) : 0);
+        activeSize = file(active).length();
+        writer = new OutputStreamWriter(new FileOutputStream(file(active), true), UTF_8);
+        if (!endsWithNewline(file(active))) {
+            // end the record a crash cut short, so that the next one is not appended to it and lost with it
+            writer.write("\n");
+            writer.flush();
+            activeSize++;
+        }
+        compact();
+    }
+
+    private static boolean endsWithNewline(File file) throws IOException {
+        if (file.length() == 0) {
+            return true;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        } finally {
+            raf.close();
+        }
+    }
+
+    void append(OutboxEntry entry) throws IOException {
+        Record record = new Record();
+        record.op = PENDING;
+        record.entry = entry;
+        write(record);
+        remember(entry, active);
+        rotateIfNeeded();
+    }
+
+    void markDone(String id) throws IOException {
+        if (!pending.containsKey(id)) {
+            return;
+        }
+        Record record = new Record();
+        record.op = DONE;
+        record.id = id;
+        write(record);
+        forget(id);
+        rotateIfNeeded();
+    }
+
+    Collection<OutboxEntry> pending() {
+        return new ArrayList<OutboxEntry>(pending.values());
+    }
+
+    int segmentCount() {
+        return live.size();
+    }
+
+    int rotationCount() {
+        return rotations;
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    void close() throws IOException {
+        writer.close();
+    }
+
+    private void write(Record record) throws IOException {
+        String line = mapper.writeValueAsString(record) + "\n";
+        writer.write(line);
+        // hand every record to the OS right away, so it survives the JVM going down
+        writer.flush();
+        activeSize += line.getBytes(UTF_8).length;
+    }
+
+    private void rotateIfNeeded() throws IOException {
+        if (activeSize < maxSegmentSize) {
+            return;
+        }
+        writer.close();
+        rotations++;
+        active++;
+        live.put(active, 0);
+        activeSize = 0;
+        writer = new OutputStreamWriter(new FileOutputStream(file(active), true), UTF_8);
+        compact();
+    }
+
+    /**
+     * Deletes the oldest segments, copying the entries they still hold into the active segment.
+     * Expired entries are dropped instead of being copied.
+     */
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        long newRecords = activeSize;
+        while (live.firstKey() != active) {
+            long oldest = live.firstKey();
+            if (live.get(oldest) > 0) {
+                List<OutboxEntry> carried = new ArrayList<OutboxEntry>();
+                for (Map.Entry<String, Long> e : segmentOf.entrySet()) {
+                    if (e.getValue() == oldest) {
+                        carried.add(pending.get(e.getKey()));
+                    }
+                }
+                for (OutboxEntry entry : carried) {
+                    forget(entry.getId());
+                    if (now - entry.getCreated() > maxAge) {
+                        logger.warning("Dropping Slack notification " + entry + " from the outbox, it is too old");
+                        continue;
+                    }
+                    Record record = new Record();
+                    record.op = PENDING;
+                    record.entry = entry;
+                    write(record);
+                    remember(entry, active);
+                }
+            }
+            live.remove(oldest);
+            if (!file(oldest).delete() && file(oldest).exists()) {
+                logger.warning("Could not delete outbox segment " + file(oldest));
+            }
+        }
+        activeSize = newRecords;
+    }
+
+    private void remember(OutboxEntry entry, long segment) {
+        pending.put(entry.getId(), entry);
+        segmentOf.put(entry.getId(), segment);
+        live.put(segment, live.get(segment) + 1);
+    }
+
+    private void forget(String id) {
+        pending.remove(id);
+        Long segment = segmentOf.remove(id);
+        if (segment != null && live.containsKey(segment)) {
+            live.put(segment, live.get(segment) - 1);
+        }
+    }
+
+    private List<Long> segments() {
+        String[] names = dir.list(new FilenameFilter() {
+            public boolean accept(File d, String name) {
+                return name.endsWith(SUFFIX);
+            }
+        });
+        List<Long> segments = new ArrayList<Long>();
+        if (names != null) {
+            for (String name : names) {
+                try {
+                    segments.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warning("Ignoring unexpected file in the outbox: " + name);
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private File file(long segment) {
+        return new File(dir, String.format("%010d", segment) + SUFFIX);
+    }
+
+    /**
+     * One line of the journal.
+     */
+    static final class Record {
+        public String op;
+        public String id;
+        public OutboxEntry entry;
+    }
+}
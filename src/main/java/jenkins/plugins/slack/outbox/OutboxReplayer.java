@@ -0,0 +1,60 @@
+package jenkins.plugins.slack.outbox;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import jenkins.plugins.slack.PublishResult;
+import jenkins.plugins.slack.StandardSlackService;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sends the notifications left pending in the {@link Outbox}, shortly after startup and then periodically.
+ */
+@Extension
+public class OutboxReplayer extends AsyncPeriodicWork {
+
+    static final long RECURRENCE_PERIOD = Long.getLong(OutboxReplayer.class.getName() + ".recurrencePeriod", MIN * 5);
+    static final long INITIAL_DELAY = Long.getLong(OutboxReplayer.class.getName() + ".initialDelay", MIN / 2);
+
+    public OutboxReplayer() {
+        super("Slack outbox replay");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD;
+    }
+
+    @Override
+    public long getInitialDelay() {
+        return INITIAL_DELAY;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        Outbox outbox = Outbox.get();
+        if (outbox == null) {
+            return;
+        }
+        List<OutboxEntry> entries = outbox.claimPending();
+        if (entries.isEmpty()) {
+            return;
+        }
+        listener.getLogger().println("Resending " + entries.size() + " pending Slack notification(s)");
+        for (int i = 0; i < entries.size(); i++) {
+            OutboxEntry entry = entries.get(i);
+            if (Thread.interrupted()) {
+                for (OutboxEntry notSent : entries.subList(i, entries.size())) {
+                    outbox.release(notSent.getId());
+                }
+                throw new InterruptedException();
+            }
+            StandardSlackService service = new StandardSlackService(entry.getTeamDomain(),
+                    outbox.unseal(entry.getToken()), entry.getRoom());
+            PublishResult.Delivery delivery = service.resend(entry);
+            listener.getLogger().println(entry + ": " + delivery.getOutcome());
+        }
+    }
+}
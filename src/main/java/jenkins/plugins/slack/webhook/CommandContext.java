@@ -0,0 +1,54 @@
+package jenkins.plugins.slack.webhook;
+
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.plugins.slack.webhook.model.SlackPostData;
+
+
+
+
+/**
+ * What a command is invoked with, besides its arguments: the request from Slack it comes from.
+ *
+ * Commands are shared by all requests, so anything specific to one request is passed in its context.
+ */
+public class CommandContext {
+    private final SlackPostData data;
+    private final String triggerWord;
+    private final CountDownLatch answered = new CountDownLatch(1);
+
+    public CommandContext(SlackPostData data, String triggerWord) {
+        this.data = data;
+        this.triggerWord = triggerWord;
+    }
+
+    public SlackPostData getData() {
+        return this.data;
+    }
+
+    /**
+     * The trigger word of an outgoing webhook, or the slash command, such as {@code /jenkins}.
+     */
+    public String getTriggerWord() {
+        return this.triggerWord;
+    }
+
+    /**
+     * Tells that the answer to the command has been sent back to Slack.
+     */
+    void answered() {
+        answered.countDown();
+    }
+
+    /**
+     * Waits until the answer to the command has been sent back to Slack, so that messages following it are not
+     * shown before it.
+     *
+     * @return false if it was not sent in time
+     */
+    public boolean awaitAnswer(long timeout, TimeUnit unit) throws InterruptedException {
+        return answered.await(timeout, unit);
+    }
+}
@@ -2,7 +2,10 @@ package jenkins.plugins.slack.webhook;
 
 
 import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.Collections;
 
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
@@ -13,21 +16,40 @@ import jenkins.plugins.slack.webhook.exception.RouteNotFoundException;
 
 
 
+/**
+ * Routes commands to the {@link RouterCommand} whose pattern they match.
+ *
+ * Routes are indexed by the first word of their commands, so that a command is only matched against the
+ * patterns of the routes sharing its first word. A router is set up once, then shared by all requests.
+ */
 public class CommandRouter<T> {
 
     public CommandRouter() { }
 
     public List<Route<T>> routes = new ArrayList<Route<T>>();
 
-    public CommandRouter<T> addRoute(String regex,
+    private final Map<String, List<Route<T>>> routesByKeyword = new HashMap<String, List<Route<T>>>();
+
+    public CommandRouter<T> addRoute(String keyword,
+        String regex,
         String command,
         String commandDescription,
         RouterCommand<T> routerCommand) {
 
-        this.routes.add(new CommandRouter.Route<T>(regex,
+        Route<T> route = new CommandRouter.Route<T>(keyword,
+            regex,
             command,
             commandDescription,
-            routerCommand));
+            routerCommand);
+
+        this.routes.add(route);
+
+        List<Route<T>> sameKeyword = routesByKeyword.get(keyword);
+        if (sameKeyword == null) {
+            sameKeyword = new ArrayList<Route<T>>(1);
+            routesByKeyword.put(keyword, sameKeyword);
+        }
+        sameKeyword.add(route);
 
         return this;
     }
@@ -36,12 +58,14 @@ public class CommandRouter<T> {
         return this.routes;
     }
 
-    public T route(String command) throws CommandRouterException,
+    public T route(CommandContext context, String command) throws CommandRouterException,
         RouteNotFoundException {
 
-        T message = null;
+        List<Route<T>> candidates = routesByKeyword.get(keyword(command));
+        if (candidates == null)
+            candidates = Collections.emptyList();
 
-        for (Route<T> pa : routes) {
+        for (Route<T> pa : candidates) {
 
             Matcher matcher = pa.regex.matcher(command);
 
@@ -61,8 +85,9 @@ public class CommandRouter<T> {
                     }
                 }
                 
+                T message = null;
                 try {
-                    message = pa.routerCommand.execute(parametersArray);
+                    message = pa.routerCommand.execute(context, parametersArray);
                 } catch (Exception ex) {
                     throw new CommandRouterException(ex.getMessage());
                 }
@@ -74,20 +99,36 @@ public class CommandRouter<T> {
             }
         }
 
-        return message;
+        throw new RouteNotFoundException("No route found for given command", command);
+    }
+
+    /**
+     * The first word of the command, which selects the routes it is matched against.
+     */
+    static String keyword(String command) {
+        int start = 0;
+        while (start < command.length() && Character.isWhitespace(command.charAt(start)))
+            start++;
+        int end = start;
+        while (end < command.length() && !Character.isWhitespace(command.charAt(end)))
+            end++;
+        return command.substring(start, end);
     }
 
     public static class Route<T> {
+        public String keyword;
         public Pattern regex;
         public String command;
         public String commandDescription;
         public RouterCommand<T> routerCommand;
 
-        public Route(String regex,
+        public Route(String keyword,
+            String regex,
             String command,
             String commandDescription,
             RouterCommand<T> routerCommand) {
 
+            this.keyword = keyword;
             this.regex = Pattern.compile(regex);
             this.routerCommand = routerCommand;
             this.command = command;
@@ -3,6 +3,10 @@ package jenkins.plugins.slack.webhook;
 
 import jenkins.model.Jenkins;
 
+import hudson.Extension;
+
+import hudson.console.ConsoleNote;
+
 import hudson.model.Build;
 import hudson.model.Result;
 import hudson.model.Project;
@@ -18,7 +22,6 @@ import java.util.ArrayList;
 
 import org.kohsuke.stapler.interceptor.RequirePOST;
 
-import jenkins.plugins.slack.webhook.model.SlackPostData;
 import jenkins.plugins.slack.webhook.model.SlackTextMessage;
 import jenkins.plugins.slack.webhook.model.SlackWebhookCause;
 
@@ -28,20 +31,53 @@ import org.acegisecurity.context.SecurityContextHolder;
 
 
 
-public class GetProjectLogCommand extends SlackRouterCommand implements RouterCommand<SlackTextMessage> {
+@Extension(ordinal = 100)
+public class GetProjectLogCommand extends SlackRouterCommand {
+
+    static final int DEFAULT_LINES = 25;
+    static final int MAX_LINES = Integer.getInteger(GetProjectLogCommand.class.getName() + ".maxLines", 200);
+
+    @Override
+    public String getKeyword() {
+        return "get";
+    }
+
+    @Override
+    public String getRegex() {
+        return "^get ([\\p{L}\\p{N}\\p{ASCII}\\W]+) #([0-9]+) log"
+            + "(?:\\s+([0-9]{1,9})|\\s+lines\\s+([0-9]{1,12})\\s*-\\s*([0-9]{1,12}))?";
+    }
+
+    @Override
+    public String getUsage() {
+        return "get <project-name> #<build_number> log [<lines> | lines <from>-<to>]";
+    }
 
-    public GetProjectLogCommand(SlackPostData data) { 
-        super(data);
+    @Override
+    public String getDescription() {
+        return "Return the last lines of the log of build #<build_number> of <project_name>, "
+            + DEFAULT_LINES + " unless told how many, or lines <from> to <to> of it; at most " + MAX_LINES;
     }
 
     @Override
-    public SlackTextMessage execute(String... args) {
+    public SlackTextMessage execute(CommandContext context, String... args) {
         String projectName = args[0];
         String buildNumber = args[1];
+        int lines = args.length > 2 && args[2] != null ? Integer.parseInt(args[2]) : DEFAULT_LINES;
+        lines = Math.min(lines, MAX_LINES);
+        boolean window = args.length > 4 && args[3] != null;
+        long from = window ? Long.parseLong(args[3]) : 0;
+        long to = window ? Long.parseLong(args[4]) : 0;
+
+        if (window && (from < 1 || to < from))
+            return new SlackTextMessage("Invalid line range ("+from+"-"+to+"), lines are counted from 1\n");
+        // at most as many lines as the tail, from the first line asked for
+        to = Math.min(to, from + MAX_LINES - 1);
 
         SecurityContext ctx = ACL.impersonate(ACL.SYSTEM);
 
         List<String> log = new ArrayList<String>();
+        String heading = "";
 
         try {
             Project project =
@@ -56,7 +92,17 @@ public class GetProjectLogCommand extends SlackRouterCommand implements RouterCo
             if (build == null)
                 return new SlackTextMessage("Could not find build #"+buildNumber+" for ("+projectName+")\n");
 
-            log = build.getLog(25);
+            if (window) {
+                LogLineIndex.Window lineWindow = LogLineIndex.read(build.getLogFile(), build.getCharset(), from, to);
+                if (lineWindow.getLines().isEmpty())
+                    return new SlackTextMessage("The log of build #"+buildNumber+" for ("+projectName+") has only "
+                        +lineWindow.getTotal()+" lines\n");
+                log = ConsoleNote.removeNotes(lineWindow.getLines());
+                heading = " lines "+lineWindow.getFrom()+"-"+lineWindow.getTo()+" of "+lineWindow.getTotal();
+            } else {
+                // not getLog(n), which reads the whole log to keep its last lines
+                log = ConsoleNote.removeNotes(LogTail.tail(build.getLogFile(), build.getCharset(), lines));
+            }
 
         } catch (IOException ex) {
             return new SlackTextMessage("Error occured returning log: "+ex.getMessage());
@@ -64,13 +110,18 @@ public class GetProjectLogCommand extends SlackRouterCommand implements RouterCo
             SecurityContextHolder.setContext(ctx);
         }
 
-        String response = "*"+projectName+"* *#"+buildNumber+"*\n";
-        response += "```";
+        int length = 32 + projectName.length() + heading.length();
+        for (String line : log) {
+            length += line.length() + 1;
+        }
+        StringBuilder response = new StringBuilder(length);
+        response.append("*").append(projectName).append("* *#").append(buildNumber).append("*").append(heading).append("\n");
+        response.append("```");
         for (String line : log) {
-            response += line + "\n";
+            response.append(line).append("\n");
         }
-        response += "```";
+        response.append("```");
 
-        return new SlackTextMessage(response);
+        return new SlackTextMessage(response.toString());
     }
 }
@@ -0,0 +1,374 @@
+package jenkins.plugins.slack.webhook;
+
+
+import hudson.Extension;
+import hudson.XmlFile;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+
+import hudson.security.ACL;
+
+import jenkins.model.Jenkins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+
+
+
+/**
+ * The status of every project, as shown by the {@code list projects} command, kept up to date from build and
+ * item events so that the command neither walks all the items nor loads their last build.
+ *
+ * Projects are kept in the order {@link Jenkins#getAllItems(Class)} lists them in: by name, ignoring case,
+ * with the content of a folder right after it. The index is filled from the items the first time it is
+ * read, since most instances never receive a webhook command.
+ */
+public final class JobStatusIndex {
+
+    private static JobStatusIndex instance;
+
+    /** orders full names like a depth-first walk of the item tree, where each group sorts its items by name */
+    static final Comparator<String> TREE_ORDER = new Comparator<String>() {
+        public int compare(String a, String b) {
+            String[] as = a.split("/");
+            String[] bs = b.split("/");
+            for (int i = 0; i < Math.min(as.length, bs.length); i++) {
+                int c = as[i].compareToIgnoreCase(bs[i]);
+                if (c == 0) {
+                    c = as[i].compareTo(bs[i]);
+                }
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return as.length - bs.length;
+        }
+    };
+
+    private final Jenkins jenkins;
+    private final ConcurrentSkipListMap<String, JobStatus> statuses =
+        new ConcurrentSkipListMap<String, JobStatus>(TREE_ORDER);
+    /** projects whose last build was deleted, looked up again on the next read */
+    private final Set<String> stale = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /** events are only followed once the index is read, until then it is left empty */
+    private volatile boolean listening;
+    private volatile boolean seeded;
+    private final Object seedLock = new Object();
+
+    JobStatusIndex(Jenkins jenkins) {
+        this.jenkins = jenkins;
+    }
+
+    public static synchronized JobStatusIndex get() {
+        Jenkins jenkins = Jenkins.getInstance();
+        // a restarted instance, e.g. between tests, has items of its own
+        if (instance == null || instance.jenkins != jenkins) {
+            instance = new JobStatusIndex(jenkins);
+        }
+        return instance;
+    }
+
+    /**
+     * The status of every project, in tree order.
+     */
+    public List<JobStatus> getStatuses() {
+        if (!seeded) {
+            seed();
+        }
+        if (!stale.isEmpty()) {
+            refreshStale();
+        }
+        return new ArrayList<JobStatus>(statuses.values());
+    }
+
+    private void seed() {
+        // not under the lock of the index, which builds take when they start and end
+        synchronized (seedLock) {
+            if (seeded) {
+                return;
+            }
+            // builds that start or end while the items are walked are recorded as well
+            listening = true;
+            if (jenkins != null) {
+                SecurityContext ctx = ACL.impersonate(ACL.SYSTEM);
+                try {
+                    for (AbstractProject<?, ?> project : jenkins.getAllItems(AbstractProject.class)) {
+                        update(JobStatus.of(project));
+                    }
+                } finally {
+                    SecurityContextHolder.setContext(ctx);
+                }
+            }
+            seeded = true;
+        }
+    }
+
+    private void refreshStale() {
+        SecurityContext ctx = ACL.impersonate(ACL.SYSTEM);
+        try {
+            for (String fullName : stale) {
+                stale.remove(fullName);
+                AbstractProject<?, ?> project = jenkins.getItemByFullName(fullName, AbstractProject.class);
+                JobStatus status = project != null ? JobStatus.of(project) : null;
+                synchronized (this) {
+                    if (status != null) {
+                        statuses.put(fullName, status);
+                    } else {
+                        statuses.remove(fullName);
+                    }
+                }
+            }
+        } finally {
+            SecurityContextHolder.setContext(ctx);
+        }
+    }
+
+    /**
+     * Records the status, unless the index already knows of a later build of the project.
+     */
+    synchronized void update(JobStatus status) {
+        if (!listening) {
+            return;
+        }
+        JobStatus known = statuses.get(status.fullName);
+        if (known != null && known.isNewerThan(status)) {
+            status = status.withBuild(known.lastBuildNumber, known.status);
+        }
+        statuses.put(status.fullName, status);
+    }
+
+    void updateBuild(AbstractProject<?, ?> project, int number, String status) {
+        if (!listening) {
+            return;
+        }
+        String fullName = project.getFullName();
+        // not seeded yet, or created before the index listened; loaded outside of the lock, like stale projects
+        JobStatus loaded = statuses.containsKey(fullName) ? null : JobStatus.of(project);
+        synchronized (this) {
+            if (!listening) {
+                return;
+            }
+            JobStatus known = statuses.get(fullName);
+            if (known == null) {
+                if (loaded == null) {
+                    // removed meanwhile
+                    return;
+                }
+                known = loaded;
+            }
+            if (number >= known.lastBuildNumber) {
+                statuses.put(fullName, known.withBuild(number, status));
+            }
+        }
+    }
+
+    void updateItem(Item item) {
+        if (!listening) {
+            return;
+        }
+        if (item instanceof AbstractProject) {
+            update(JobStatus.of((AbstractProject<?, ?>) item));
+        } else if (item instanceof ItemGroup) {
+            for (Job<?, ?> job : item.getAllJobs()) {
+                updateItem(job);
+            }
+        }
+    }
+
+    /**
+     * Forgets the item and, if it is a folder, everything in it.
+     */
+    synchronized void remove(String fullName) {
+        statuses.remove(fullName);
+        String prefix = fullName + "/";
+        // the content of a folder comes right after it
+        for (Map.Entry<String, JobStatus> e : statuses.tailMap(fullName, false).entrySet()) {
+            if (!e.getKey().startsWith(prefix)) {
+                break;
+            }
+            statuses.remove(e.getKey());
+        }
+    }
+
+    /**
+     * Looks the project up again on the next read, e.g. once its last build is deleted.
+     */
+    void invalidate(String fullName) {
+        if (listening) {
+            stale.add(fullName);
+        }
+    }
+
+    synchronized void clear() {
+        statuses.clear();
+        stale.clear();
+        listening = false;
+        seeded = false;
+    }
+
+    int size() {
+        return statuses.size();
+    }
+
+    /**
+     * What {@code list projects} shows of a project.
+     */
+    public static final class JobStatus {
+        static final String BUILDING = "BUILDING";
+
+        private final String fullName;
+        private final String displayName;
+        private final boolean buildable;
+        /** 0 if the project has never been built */
+        private final int lastBuildNumber;
+        /** the result of the last build, {@link #BUILDING} while it runs, null if unknown */
+        private final String status;
+
+        JobStatus(String fullName, String displayName, boolean buildable, int lastBuildNumber, String status) {
+            this.fullName = fullName;
+            this.displayName = displayName;
+            this.buildable = buildable;
+            this.lastBuildNumber = lastBuildNumber;
+            this.status = status;
+        }
+
+        static JobStatus of(AbstractProject<?, ?> project) {
+            AbstractBuild<?, ?> lastBuild = project.getLastBuild();
+            int number = 0;
+            String status = null;
+            if (lastBuild != null) {
+                number = lastBuild.getNumber();
+                status = status(lastBuild.getResult(), lastBuild.isBuilding());
+            }
+            return new JobStatus(project.getFullName(), project.getDisplayName(), project.isBuildable(), number, status);
+        }
+
+        static String status(Result result, boolean building) {
+            if (result != null) {
+                return result.toString();
+            }
+            return building ? BUILDING : null;
+        }
+
+        JobStatus withBuild(int number, String status) {
+            return new JobStatus(fullName, displayName, buildable, number, status);
+        }
+
+        /**
+         * Whether this is about a later build than the other status, or about the end of the same build.
+         */
+        boolean isNewerThan(JobStatus other) {
+            if (lastBuildNumber != other.lastBuildNumber) {
+                return lastBuildNumber > other.lastBuildNumber;
+            }
+            return status != null && !BUILDING.equals(status) && (other.status == null || BUILDING.equals(other.status));
+        }
+
+        public String getFullName() {
+            return fullName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public boolean isBuildable() {
+            return buildable;
+        }
+
+        public int getLastBuildNumber() {
+            return lastBuildNumber;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+
+    @Extension
+    @SuppressWarnings("rawtypes")
+    public static final class BuildListener extends RunListener<AbstractBuild> {
+        public BuildListener() {
+            super(AbstractBuild.class);
+        }
+
+        @Override
+        public void onStarted(AbstractBuild r, TaskListener listener) {
+            get().updateBuild(r.getProject(), r.getNumber(), JobStatus.status(r.getResult(), true));
+        }
+
+        @Override
+        public void onCompleted(AbstractBuild r, TaskListener listener) {
+            get().updateBuild(r.getProject(), r.getNumber(), JobStatus.status(r.getResult(), false));
+        }
+
+        @Override
+        public void onDeleted(AbstractBuild r) {
+            // the build is still the last one while listeners are told about it
+            get().invalidate(r.getProject().getFullName());
+        }
+    }
+
+    @Extension
+    public static final class ProjectListener extends ItemListener {
+        @Override
+        public void onCreated(Item item) {
+            get().updateItem(item);
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            get().updateItem(item);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            get().remove(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            JobStatusIndex index = get();
+            index.remove(oldFullName);
+            index.updateItem(item);
+        }
+
+        @Override
+        public void onLoaded() {
+            get().clear();
+        }
+    }
+
+    @Extension
+    public static final class ConfigListener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            // enabling or disabling a project saves it
+            if (o instanceof AbstractProject) {
+                get().updateItem((AbstractProject<?, ?>) o);
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package jenkins.plugins.slack.webhook;
 
 import jenkins.model.Jenkins;
 
+import hudson.Extension;
+
 import hudson.model.Build;
 import hudson.model.Result;
 import hudson.model.Project;
@@ -16,9 +18,11 @@ import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
 
+import java.util.regex.PatternSyntaxException;
+
 import org.kohsuke.stapler.interceptor.RequirePOST;
 
-import jenkins.plugins.slack.webhook.model.SlackPostData;
+import jenkins.plugins.slack.webhook.JobStatusIndex.JobStatus;
 import jenkins.plugins.slack.webhook.model.SlackTextMessage;
 import jenkins.plugins.slack.webhook.model.SlackWebhookCause;
 
@@ -28,58 +32,156 @@ import org.acegisecurity.context.SecurityContextHolder;
 
 
 
-public class ListProjectsCommand extends SlackRouterCommand implements RouterCommand<SlackTextMessage> {
+@Extension(ordinal = 300)
+public class ListProjectsCommand extends SlackRouterCommand {
+
+    static final int PAGE_SIZE = Integer.getInteger(ListProjectsCommand.class.getName() + ".pageSize", 50);
+    static final int MAX_FOLLOW_UP_PAGES =
+        Integer.getInteger(ListProjectsCommand.class.getName() + ".maxFollowUpPages", 10);
 
-    public ListProjectsCommand(SlackPostData data) { 
-        super(data);
+    @Override
+    public String getKeyword() {
+        return "list";
     }
 
     @Override
-    public SlackTextMessage execute(String... args) {
+    public String getRegex() {
+        return "^list projects(?:\\s+(?!page\\s+[0-9]+$)(.+?))?(?:\\s+page\\s+([0-9]{1,9}))?";
+    }
 
-        SecurityContext ctx = ACL.impersonate(ACL.SYSTEM);
+    @Override
+    public String getUsage() {
+        return "list projects [filter] [page <n>]";
+    }
 
-        String response = "*Projects:*\n";
+    @Override
+    public String getDescription() {
+        return "Return a list of buildable projects, a page at a time, "
+            + "optionally filtered by name, glob (team-*), folder (folder/) or /regex/";
+    }
 
-        List<AbstractProject> jobs =
-            Jenkins.getInstance().getAllItems(AbstractProject.class);
+    @Override
+    public SlackTextMessage execute(CommandContext context, String... args) {
+        String filterText = args.length > 0 ? args[0] : null;
+        String pageText = args.length > 1 ? args[1] : null;
+
+        ProjectFilter filter;
+        try {
+            filter = ProjectFilter.parse(filterText);
+        } catch (PatternSyntaxException ex) {
+            return new SlackTextMessage("Invalid filter ("+filterText+"): "+ex.getDescription());
+        }
 
-        SecurityContextHolder.setContext(ctx);
+        ProjectList list = new ProjectList(JobStatusIndex.get().getStatuses(), filter, PAGE_SIZE,
+            context.getTriggerWord());
 
-        for (AbstractProject job : jobs) {
-            if (job.isBuildable()) {
-                AbstractBuild lastBuild = job.getLastBuild();
-                String buildNumber = "TBD";
-                String status = "TBD";
-                if (lastBuild != null) {
+        int page = pageText != null ? Math.max(Integer.parseInt(pageText), 1) : 1;
+        String responseUrl = context.getData().getResponse_url();
 
-                    buildNumber = Integer.toString(lastBuild.getNumber());
+        // the first page answers the command, the next ones follow it as separate messages; only slash commands
+        // have a response URL
+        if (pageText == null && list.getPages() > 1 && ResponseUrlPoster.isValid(responseUrl)) {
+            int last = Math.min(list.getPages(), 1 + MAX_FOLLOW_UP_PAGES);
+            List<ResponseUrlPoster.Message> followUps = new ArrayList<ResponseUrlPoster.Message>(last - 1);
+            for (int p = 2; p <= last; p++) {
+                followUps.add(list.message(p, p == last));
+            }
+            if (ResponseUrlPoster.post(context, followUps))
+                return new SlackTextMessage(list.render(1, "_" + (last - 1) + " more page(s) follow_"));
+        }
 
-                    if (lastBuild.isBuilding()) {
-                        status = "BUILDING";
-                    }
+        return new SlackTextMessage(list.render(page, list.more(page)));
+    }
 
-                    Result result = lastBuild.getResult();
+    /**
+     * The projects matching a filter, cut into pages from a single snapshot of the index, so that pages
+     * rendered later neither skip nor repeat projects.
+     */
+    static final class ProjectList {
+        /** projects matching the filter, buildable or not */
+        private final int matching;
+        /** buildable projects matching the filter, the ones that are listed */
+        private final List<JobStatus> listed = new ArrayList<JobStatus>();
+        private final ProjectFilter filter;
+        private final int pageSize;
+        private final String triggerWord;
+
+        ProjectList(List<JobStatus> jobs, ProjectFilter filter, int pageSize, String triggerWord) {
+            int matching = 0;
+            for (JobStatus job : jobs) {
+                if (filter.matches(job)) {
+                    matching++;
+                    if (job.isBuildable())
+                        listed.add(job);
+                }
+            }
+            this.matching = matching;
+            this.filter = filter;
+            this.pageSize = Math.max(pageSize, 1);
+            this.triggerWord = triggerWord;
+        }
+
+        int getPages() {
+            return Math.max(1, (listed.size() + pageSize - 1) / pageSize);
+        }
 
-                    if (result != null) {
-                        status = result.toString();
+        /**
+         * How to get the page after the given one, empty if it is the last one.
+         */
+        String more(int page) {
+            if (page >= getPages())
+                return "";
+            return "_Page " + page + " of " + getPages() + ", `" + triggerWord + " list projects"
+                + (filter.isAll() ? "" : " " + filter) + " page " + (page + 1) + "` for more_";
+        }
+
+        ResponseUrlPoster.Message message(final int page, final boolean last) {
+            return new ResponseUrlPoster.Message() {
+                public SlackTextMessage render() {
+                    return new SlackTextMessage(ProjectList.this.render(page, last ? more(page) : ""));
+                }
+            };
+        }
+
+        String render(int page, String footer) {
+            int from = (int) Math.min((Math.max(page, 1) - 1) * (long) pageSize, listed.size());
+            int to = Math.min(from + pageSize, listed.size());
+            // fewer projects are shown on more lines each
+            boolean compact = matching > 10;
+
+            StringBuilder response = new StringBuilder(64 + footer.length() + (to - from) * (compact ? 80 : 96));
+            if (page == 1)
+                response.append("*Projects:*\n");
+            else
+                response.append("*Projects, page ").append(page).append(" of ").append(getPages()).append(":*\n");
+
+            for (JobStatus job : listed.subList(from, to)) {
+                String buildNumber = "TBD";
+                String status = "TBD";
+                if (job.getLastBuildNumber() > 0) {
+                    buildNumber = Integer.toString(job.getLastBuildNumber());
+                    if (job.getStatus() != null) {
+                        status = job.getStatus();
                     }
                 }
 
-                if (jobs.size() <= 10) {
-                    response += ">*"+job.getDisplayName() + "*\n>*Last Build:* #"+buildNumber+"\n>*Status:* "+status;
-                    response += "\n\n\n";
+                if (!compact) {
+                    response.append(">*").append(job.getDisplayName()).append("*\n>*Last Build:* #").append(buildNumber)
+                        .append("\n>*Status:* ").append(status).append("\n\n\n");
                 } else {
-                    response += ">*"+job.getDisplayName() + "* :: *Last Build:* #"+buildNumber+" :: *Status:* "+status;
-                    response += "\n\n";
+                    response.append(">*").append(job.getDisplayName()).append("* :: *Last Build:* #").append(buildNumber)
+                        .append(" :: *Status:* ").append(status).append("\n\n");
                 }
             }
-        }
 
-        if (jobs == null || jobs.size() == 0)
-            response += ">_No projects found_";
+            if (matching == 0)
+                response.append(">_No projects found_");
+            else if (page > getPages())
+                response.append(">_There ").append(getPages() == 1 ? "is only 1 page" : "are only " + getPages() + " pages")
+                    .append("_");
 
-        return new SlackTextMessage(response);
+            response.append(footer);
+            return response.toString();
+        }
     }
 }
-
@@ -0,0 +1,364 @@
+package jenkins.plugins.slack.webhook;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+
+
+
+/**
+ * Sparse index of the lines of a console log, so that any window of lines is read with one seek and a
+ * bounded read rather than by reading the log from its start.
+ *
+ * The index holds the offset of every {@code jenkins.plugins.slack.webhook.LogLineIndex.interval}th line. It
+ * is built the first time a window of the log is asked for, extended when the log has grown since, and saved
+ * beside the log as {@code log.slack-lines} so that it outlives restarts. The indexes of the last
+ * {@code jenkins.plugins.slack.webhook.LogLineIndex.cacheSize} logs read are kept in memory.
+ *
+ * Lines end with a line feed only; a carriage return before it is dropped, and one alone, as progress bars
+ * write, does not end a line. Compressed logs ({@code .gz}) cannot be seeked in, and are read through.
+ */
+public final class LogLineIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(LogLineIndex.class.getName());
+
+    static final int INTERVAL = Integer.getInteger(LogLineIndex.class.getName() + ".interval", 1000);
+    static final int CACHE_SIZE = Integer.getInteger(LogLineIndex.class.getName() + ".cacheSize", 64);
+
+    static final String FILE_SUFFIX = ".slack-lines";
+    private static final int MAGIC = 0x534c4c49;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Map<String, LogLineIndex> cache = new LinkedHashMap<String, LogLineIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LogLineIndex> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final File log;
+    private final int interval;
+    /** offsets[k] is the offset of line k * interval + 1 */
+    private long[] offsets = new long[] { 0 };
+    private int checkpoints = 1;
+    /** complete lines in the first indexedLength bytes of the log */
+    private long lineCount;
+    /** how much of the log is indexed, up to the end of its last complete line */
+    private long indexedLength;
+
+    LogLineIndex(File log, int interval) {
+        this.log = log;
+        this.interval = interval;
+    }
+
+    /**
+     * Lines {@code from} to {@code to} of the log, both included and counted from 1, or as many of them as
+     * the log has.
+     */
+    public static Window read(File log, Charset charset, long from, long to) throws IOException {
+        return read(log, charset, from, to, INTERVAL);
+    }
+
+    static Window read(File log, Charset charset, long from, long to, int interval) throws IOException {
+        if (from < 1 || to < from)
+            throw new IllegalArgumentException("Invalid line range " + from + "-" + to);
+        if (!log.isFile())
+            return new Window(from, Collections.<String>emptyList(), 0);
+        if (log.getName().endsWith(".gz"))
+            return readCompressed(log, charset, from, to);
+        return of(log, interval).window(charset, from, to);
+    }
+
+    static LogLineIndex of(File log, int interval) {
+        String key = log.getAbsolutePath();
+        synchronized (cache) {
+            LogLineIndex index = cache.get(key);
+            if (index == null || index.interval != interval) {
+                index = load(log, interval);
+                cache.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    static File indexFile(File log) {
+        return new File(log.getParentFile(), log.getName() + FILE_SUFFIX);
+    }
+
+    private static LogLineIndex load(File log, int interval) {
+        LogLineIndex index = new LogLineIndex(log, interval);
+        File file = indexFile(log);
+        if (!file.isFile())
+            return index;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != interval)
+                    return index;
+                long indexedLength = in.readLong();
+                long lineCount = in.readLong();
+                int checkpoints = in.readInt();
+                // checked before anything is allocated from it
+                boolean consistent = lineCount >= 0 && indexedLength >= lineCount
+                    && checkpoints == lineCount / interval + 1 && file.length() == 32 + 8L * checkpoints;
+                if (!consistent)
+                    return index;
+                long[] offsets = new long[checkpoints];
+                for (int i = 0; i < checkpoints; i++) {
+                    offsets[i] = in.readLong();
+                }
+                index.indexedLength = indexedLength;
+                index.lineCount = lineCount;
+                index.offsets = offsets;
+                index.checkpoints = checkpoints;
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, "Could not read " + file + ", indexing " + log + " again", ex);
+        }
+        return index;
+    }
+
+    private void save() {
+        File file = indexFile(log);
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(interval);
+                out.writeLong(indexedLength);
+                out.writeLong(lineCount);
+                out.writeInt(checkpoints);
+                for (int i = 0; i < checkpoints; i++) {
+                    out.writeLong(offsets[i]);
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                // renameTo does not replace files on every platform
+                file.delete();
+                if (!tmp.renameTo(file))
+                    throw new IOException("Could not rename " + tmp + " to " + file);
+            }
+        } catch (IOException ex) {
+            // the index is still kept in memory
+            LOGGER.log(Level.FINE, "Could not save the line index of " + log, ex);
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Indexes what was added to the log since it was last indexed, or all of it if it was replaced.
+     *
+     * @return the length of the log
+     */
+    private long update(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        if (length < indexedLength) {
+            offsets = new long[] { 0 };
+            checkpoints = 1;
+            lineCount = 0;
+            indexedLength = 0;
+        }
+        if (length == indexedLength)
+            return length;
+
+        long before = lineCount;
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, length - indexedLength)];
+        long pos = indexedLength;
+        file.seek(pos);
+        while (pos < length) {
+            int n = file.read(buffer, 0, (int) Math.min(buffer.length, length - pos));
+            if (n < 0)
+                break;
+            for (int i = 0; i < n; i++) {
+                if (buffer[i] != '\n')
+                    continue;
+                lineCount++;
+                indexedLength = pos + i + 1;
+                if (lineCount % interval == 0)
+                    addCheckpoint(indexedLength);
+            }
+            pos += n;
+        }
+        if (lineCount != before)
+            save();
+        return length;
+    }
+
+    private void addCheckpoint(long offset) {
+        if (checkpoints == offsets.length)
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        offsets[checkpoints++] = offset;
+    }
+
+    private synchronized Window window(Charset charset, long from, long to) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(log, "r");
+        try {
+            long length = update(file);
+            // a last line without a line break is a line too
+            long total = lineCount + (length > indexedLength ? 1 : 0);
+            if (from > total)
+                return new Window(from, Collections.<String>emptyList(), total);
+
+            int checkpoint = (int) Math.min((from - 1) / interval, checkpoints - 1);
+            long start = offsets[checkpoint];
+            file.seek(start);
+            InputStream in = new BufferedInputStream(
+                new BoundedInputStream(Channels.newInputStream(file.getChannel()), length - start), BUFFER_SIZE);
+            LineReader reader = new LineReader(in, charset);
+            for (long line = (long) checkpoint * interval + 1; line < from; line++) {
+                reader.skipLine();
+            }
+            List<String> lines = new ArrayList<String>((int) Math.min(to - from + 1, 1024));
+            for (long line = from; line <= to; line++) {
+                String text = reader.readLine();
+                if (text == null)
+                    break;
+                lines.add(text);
+            }
+            return new Window(from, lines, total);
+        } finally {
+            file.close();
+        }
+    }
+
+    private static Window readCompressed(File log, Charset charset, long from, long to) throws IOException {
+        List<String> lines = new ArrayList<String>((int) Math.min(to - from + 1, 1024));
+        long total = 0;
+        FileInputStream in = new FileInputStream(log);
+        try {
+            LineReader reader = new LineReader(new BufferedInputStream(new GZIPInputStream(in), BUFFER_SIZE), charset);
+            // counted to the end, to tell how many lines there are
+            while (true) {
+                if (total + 1 >= from && total + 1 <= to) {
+                    String text = reader.readLine();
+                    if (text == null)
+                        break;
+                    lines.add(text);
+                } else if (!reader.skipLine()) {
+                    break;
+                }
+                total++;
+            }
+        } finally {
+            in.close();
+        }
+        return new Window(from, lines, total);
+    }
+
+    /**
+     * Reads lines ending with a line feed, decoding only the ones that are not skipped.
+     * A carriage return only counts as part of a CRLF line break, so that logs are split into the same lines
+     * wherever they are read.
+     */
+    static final class LineReader {
+        private final InputStream in;
+        private final Charset charset;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+        LineReader(InputStream in, Charset charset) {
+            this.in = in;
+            this.charset = charset;
+        }
+
+        /**
+         * @return false at the end of the log
+         */
+        boolean skipLine() throws IOException {
+            int c = in.read();
+            if (c < 0)
+                return false;
+            while (c >= 0 && c != '\n') {
+                c = in.read();
+            }
+            return true;
+        }
+
+        String readLine() throws IOException {
+            line.reset();
+            int c = in.read();
+            if (c < 0)
+                return null;
+            while (c >= 0 && c != '\n') {
+                line.write(c);
+                c = in.read();
+            }
+            byte[] bytes = line.toByteArray();
+            int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+            return new String(bytes, 0, length, charset);
+        }
+    }
+
+    /**
+     * Lines of a log, from a given line on.
+     */
+    public static final class Window {
+        private final long from;
+        private final List<String> lines;
+        private final long total;
+
+        Window(long from, List<String> lines, long total) {
+            this.from = from;
+            this.lines = lines;
+            this.total = total;
+        }
+
+        /** number of the first line, counted from 1 */
+        public long getFrom() {
+            return from;
+        }
+
+        /** number of the last line, before {@link #getFrom()} if there are none */
+        public long getTo() {
+            return from + lines.size() - 1;
+        }
+
+        public List<String> getLines() {
+            return lines;
+        }
+
+        /** number of lines in the log */
+        public long getTotal() {
+            return total;
+        }
+    }
+}
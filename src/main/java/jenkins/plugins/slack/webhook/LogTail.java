@@ -0,0 +1,139 @@
+package jenkins.plugins.slack.webhook;
+
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+
+
+
+/**
+ * The last lines of a console log, read from the end of the file rather than from its start.
+ *
+ * The log is read backward in blocks of {@code jenkins.plugins.slack.webhook.LogTail.blockSize} bytes until
+ * enough lines are found, and never more than {@code jenkins.plugins.slack.webhook.LogTail.maxBytes} bytes
+ * from its end, however long its lines. Compressed logs ({@code .gz}) cannot be read backward; they are read
+ * through, keeping only the lines asked for. Lines end with a line feed only, as in {@link LogLineIndex}: progress
+ * output rewritten with lone carriage returns is one line.
+ */
+public final class LogTail {
+
+    static final int BLOCK_SIZE = Integer.getInteger(LogTail.class.getName() + ".blockSize", 8192);
+    static final long MAX_BYTES = Long.getLong(LogTail.class.getName() + ".maxBytes", 1024 * 1024L);
+
+    /** first line when the log has more than what is returned */
+    public static final String TRUNCATED = "[...truncated...]";
+
+    private LogTail() { }
+
+    /**
+     * @return the last lines of the log, after {@link #TRUNCATED} if there are lines before them, or nothing
+     * if there is no log
+     */
+    public static List<String> tail(File log, Charset charset, int lines) throws IOException {
+        return tail(log, charset, lines, BLOCK_SIZE, MAX_BYTES);
+    }
+
+    static List<String> tail(File log, Charset charset, int lines, int blockSize, long maxBytes) throws IOException {
+        if (lines <= 0 || !log.isFile())
+            return Collections.emptyList();
+        if (log.getName().endsWith(".gz"))
+            return tailCompressed(log, charset, lines);
+
+        RandomAccessFile file = new RandomAccessFile(log, "r");
+        try {
+            // a running build may write more while the log is read, it is only read up to its length now
+            long length = file.length();
+            long start = findStart(file, length, lines, Math.max(blockSize, 1), maxBytes);
+
+            List<String> tail = new ArrayList<String>(lines + 1);
+            if (start > 0)
+                tail.add(TRUNCATED);
+            file.seek(start);
+            LogLineIndex.LineReader reader = new LogLineIndex.LineReader(new BufferedInputStream(
+                new BoundedInputStream(Channels.newInputStream(file.getChannel()), length - start)), charset);
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                tail.add(line);
+            }
+            return tail;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Offset of the first of the last lines of the file, which is found by looking for line breaks backward.
+     * Line breaks are the same byte in every charset Jenkins writes logs in. When no more than {@code maxBytes}
+     * can be read, the line cut by the limit is skipped, so that neither a partial line nor a partial character
+     * is shown; the offset is the length of the file if that line is the last one.
+     */
+    static long findStart(RandomAccessFile file, long length, int lines, int blockSize, long maxBytes)
+        throws IOException {
+
+        byte[] block = new byte[(int) Math.min(blockSize, Math.max(length, 1))];
+        long limit = Math.max(0, length - maxBytes);
+        long pos = length;
+        int breaks = 0;
+        // the first line break after the limit
+        long firstBreak = -1;
+        while (pos > limit) {
+            int n = (int) Math.min(block.length, pos - limit);
+            pos -= n;
+            file.seek(pos);
+            file.readFully(block, 0, n);
+            for (int i = n - 1; i >= 0; i--) {
+                if (block[i] != '\n')
+                    continue;
+                // the line break ending the file does not start another line
+                if (pos + i < length - 1 && ++breaks == lines)
+                    return pos + i + 1;
+                firstBreak = pos + i;
+            }
+        }
+        if (limit == 0)
+            return 0;
+        file.seek(limit - 1);
+        if (file.read() == '\n')
+            return limit;
+        return firstBreak >= 0 ? firstBreak + 1 : length;
+    }
+
+    private static List<String> tailCompressed(File log, Charset charset, int lines) throws IOException {
+        ArrayDeque<String> tail = new ArrayDeque<String>(Math.min(lines, 1024) + 1);
+        boolean truncated = false;
+        FileInputStream in = new FileInputStream(log);
+        try {
+            LogLineIndex.LineReader reader =
+                new LogLineIndex.LineReader(new BufferedInputStream(new GZIPInputStream(in)), charset);
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (tail.size() == lines) {
+                    tail.removeFirst();
+                    truncated = true;
+                }
+                tail.addLast(line);
+            }
+        } finally {
+            in.close();
+        }
+        List<String> result = new ArrayList<String>(tail.size() + 1);
+        if (truncated)
+            result.add(TRUNCATED);
+        result.addAll(tail);
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+package jenkins.plugins.slack.webhook;
+
+
+import java.util.regex.Pattern;
+
+import jenkins.plugins.slack.webhook.JobStatusIndex.JobStatus;
+
+
+
+
+/**
+ * Which projects {@code list projects} shows, from the filter given after the command:
+ * <ul>
+ * <li>{@code /regex/}: projects whose full name contains a match of the regular expression</li>
+ * <li>{@code folder/}: the projects in the folder, at any depth</li>
+ * <li>a glob such as {@code team-*} or {@code folder/**}: projects whose full name matches it, ignoring case;
+ * {@code *} and {@code ?} stay within a folder, {@code **} does not</li>
+ * <li>any other text: projects whose full or display name contains it, ignoring case</li>
+ * </ul>
+ */
+public abstract class ProjectFilter {
+
+    public static final ProjectFilter ALL = new ProjectFilter("") {
+        @Override
+        public boolean matches(JobStatus job) {
+            return true;
+        }
+    };
+
+    private final String text;
+
+    private ProjectFilter(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the filter is an invalid regular expression
+     */
+    public static ProjectFilter parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return ALL;
+        }
+        final String filter = text.trim();
+        if (filter.length() > 2 && filter.startsWith("/") && filter.endsWith("/")) {
+            final Pattern regex = Pattern.compile(filter.substring(1, filter.length() - 1));
+            return new ProjectFilter(filter) {
+                @Override
+                public boolean matches(JobStatus job) {
+                    return regex.matcher(job.getFullName()).find();
+                }
+            };
+        }
+        if (filter.indexOf('*') >= 0 || filter.indexOf('?') >= 0) {
+            final Pattern glob = Pattern.compile(globToRegex(filter), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            return new ProjectFilter(filter) {
+                @Override
+                public boolean matches(JobStatus job) {
+                    return glob.matcher(job.getFullName()).matches();
+                }
+            };
+        }
+        if (filter.endsWith("/")) {
+            return new ProjectFilter(filter) {
+                @Override
+                public boolean matches(JobStatus job) {
+                    String name = job.getFullName();
+                    return name.length() > filter.length() && name.regionMatches(true, 0, filter, 0, filter.length());
+                }
+            };
+        }
+        final String lowerCase = filter.toLowerCase();
+        return new ProjectFilter(filter) {
+            @Override
+            public boolean matches(JobStatus job) {
+                return job.getFullName().toLowerCase().contains(lowerCase)
+                    || job.getDisplayName().toLowerCase().contains(lowerCase);
+            }
+        };
+    }
+
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 16);
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c != '*' && c != '?') {
+                continue;
+            }
+            if (i > literalStart) {
+                regex.append(Pattern.quote(glob.substring(literalStart, i)));
+            }
+            if (c == '?') {
+                regex.append("[^/]");
+            } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else {
+                regex.append("[^/]*");
+            }
+            literalStart = i + 1;
+        }
+        if (literalStart < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(literalStart)));
+        }
+        return regex.toString();
+    }
+
+    public abstract boolean matches(JobStatus job);
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
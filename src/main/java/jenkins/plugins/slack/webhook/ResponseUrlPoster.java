@@ -0,0 +1,120 @@
+package jenkins.plugins.slack.webhook;
+
+
+import java.io.IOException;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.StringRequestEntity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jenkins.plugins.slack.HttpClientPool;
+import jenkins.plugins.slack.NotificationDispatcher;
+import jenkins.plugins.slack.Timeouts;
+
+import jenkins.plugins.slack.webhook.model.SlackTextMessage;
+
+
+
+
+/**
+ * Posts follow-up messages to the {@code response_url} Slack sends with a command, so that a long reply can be
+ * sent in parts after the command has been answered.
+ *
+ * Messages are rendered and posted one after the other, in order, in the background, once the command has been
+ * answered. Only https URLs on slack.com are posted to, since the URL comes from the request.
+ */
+public final class ResponseUrlPoster {
+
+    private static final Logger LOGGER = Logger.getLogger(ResponseUrlPoster.class.getName());
+
+    /** how long Slack waits for the answer to a command, follow-ups are posted after that anyway */
+    static final long ANSWER_TIMEOUT = 3000;
+
+    private ResponseUrlPoster() { }
+
+    /**
+     * A message to post, rendered only when its turn comes.
+     */
+    public interface Message {
+        SlackTextMessage render();
+    }
+
+    public static boolean isValid(String responseUrl) {
+        if (responseUrl == null || responseUrl.isEmpty())
+            return false;
+        try {
+            URI uri = new URI(responseUrl);
+            String host = uri.getHost();
+            return "https".equalsIgnoreCase(uri.getScheme()) && host != null
+                && (host.equalsIgnoreCase("slack.com") || host.toLowerCase().endsWith(".slack.com"));
+        } catch (URISyntaxException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Posts the messages to the response URL of the command in the background, after its answer, stopping at the
+     * first one that cannot be posted.
+     *
+     * @return false if they cannot be posted at all, e.g. while Jenkins shuts down
+     */
+    public static boolean post(final CommandContext context, final List<? extends Message> messages) {
+        final String responseUrl = context.getData().getResponse_url();
+        if (!isValid(responseUrl)) {
+            throw new IllegalArgumentException("Not a Slack response URL: " + responseUrl);
+        }
+        try {
+            NotificationDispatcher.submit(new Callable<Void>() {
+                public Void call() throws InterruptedException {
+                    if (!context.awaitAnswer(ANSWER_TIMEOUT, TimeUnit.MILLISECONDS))
+                        LOGGER.fine("The command was not answered in time, posting to its response URL anyway");
+                    for (Message message : messages) {
+                        if (!post(responseUrl, message.render()))
+                            break;
+                    }
+                    return null;
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            LOGGER.log(Level.FINE, "Not posting to the Slack response URL", ex);
+            return false;
+        }
+    }
+
+    static boolean post(String responseUrl, SlackTextMessage message) {
+        Timeouts timeouts = Timeouts.global();
+        HttpClient client = HttpClientPool.newHttpClient();
+        PostMethod post = new PostMethod(responseUrl);
+        try {
+            post.getParams().setSoTimeout(timeouts.getReadTimeout());
+            post.setRequestEntity(new StringRequestEntity(new ObjectMapper().writeValueAsString(message),
+                "application/json", "UTF-8"));
+            int responseCode = client.executeMethod(post);
+            if (responseCode != HttpStatus.SC_OK) {
+                LOGGER.warning("Slack response URL answered " + responseCode + ": " + post.getResponseBodyAsString());
+                return false;
+            }
+            return true;
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Could not post to the Slack response URL", ex);
+            return false;
+        } finally {
+            post.releaseConnection();
+        }
+    }
+}
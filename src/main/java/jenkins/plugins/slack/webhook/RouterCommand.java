@@ -4,5 +4,5 @@ package jenkins.plugins.slack.webhook;
 
 
 public interface RouterCommand<T> {
-    public T execute(String... args);
+    public T execute(CommandContext context, String... args);
 }
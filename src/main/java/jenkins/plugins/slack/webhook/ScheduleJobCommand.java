@@ -3,6 +3,8 @@ package jenkins.plugins.slack.webhook;
 
 import jenkins.model.Jenkins;
 
+import hudson.Extension;
+
 import hudson.model.Build;
 import hudson.model.Result;
 import hudson.model.Project;
@@ -18,7 +20,6 @@ import java.util.ArrayList;
 
 import org.kohsuke.stapler.interceptor.RequirePOST;
 
-import jenkins.plugins.slack.webhook.model.SlackPostData;
 import jenkins.plugins.slack.webhook.model.SlackTextMessage;
 import jenkins.plugins.slack.webhook.model.SlackWebhookCause;
 
@@ -28,14 +29,31 @@ import org.acegisecurity.context.SecurityContextHolder;
 
 
 
-public class ScheduleJobCommand extends SlackRouterCommand implements RouterCommand<SlackTextMessage> {
+@Extension(ordinal = 200)
+public class ScheduleJobCommand extends SlackRouterCommand {
+
+    @Override
+    public String getKeyword() {
+        return "run";
+    }
 
-    public ScheduleJobCommand(SlackPostData data) { 
-        super(data);
+    @Override
+    public String getRegex() {
+        return "^run ([\\p{L}\\p{N}\\p{ASCII}\\W]+)";
+    }
+
+    @Override
+    public String getUsage() {
+        return "run <project_name>";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Schedule a run for <project_name>";
     }
 
     @Override
-    public SlackTextMessage execute(String... args) {
+    public SlackTextMessage execute(CommandContext context, String... args) {
 
         String projectName = args[0];
         SecurityContext ctx = ACL.impersonate(ACL.SYSTEM);
@@ -49,7 +67,7 @@ public class ScheduleJobCommand extends SlackRouterCommand implements RouterComm
             if (project == null)
                 return new SlackTextMessage("Could not find project ("+projectName+")\n");
 
-            if (project.scheduleBuild(new SlackWebhookCause(this.getData().getUser_name()))) {
+            if (project.scheduleBuild(new SlackWebhookCause(context.getData().getUser_name()))) {
                 return new SlackTextMessage("Build scheduled for project "+ projectName+"\n");
             } else {
                 return new SlackTextMessage("Build not scheduled due to an issue with Jenkins");
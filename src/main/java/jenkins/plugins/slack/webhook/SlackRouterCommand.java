@@ -1,23 +1,44 @@
 package jenkins.plugins.slack.webhook;
 
 
-import jenkins.plugins.slack.webhook.model.SlackPostData;
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
 
+import jenkins.model.Jenkins;
 
+import jenkins.plugins.slack.webhook.model.SlackTextMessage;
 
 
-public abstract class SlackRouterCommand {
-    private SlackPostData data;
 
-    public SlackRouterCommand(SlackPostData data) {
-        this.data = data;
-    }
 
-    public SlackPostData getData() {
-        return this.data;
-    }
+/**
+ * A command of the outgoing webhook. Commands are registered with {@link hudson.Extension}, and listed
+ * in the help in the order of their ordinal, highest first.
+ *
+ * A single instance of each command serves all requests; what is specific to a request comes in its
+ * {@link CommandContext}.
+ */
+public abstract class SlackRouterCommand implements ExtensionPoint, RouterCommand<SlackTextMessage> {
+
+    /**
+     * The first word of the commands this handles, which the router dispatches on before matching
+     * {@link #getRegex()}.
+     */
+    public abstract String getKeyword();
+
+    /**
+     * The pattern the whole command must match, without the trigger word; its groups are the arguments.
+     */
+    public abstract String getRegex();
+
+    /**
+     * How to use the command, without the trigger word, e.g. {@code run <project_name>}.
+     */
+    public abstract String getUsage();
+
+    public abstract String getDescription();
 
-    public void setData(SlackPostData data) {
-        this.data = data;
+    public static ExtensionList<SlackRouterCommand> all() {
+        return Jenkins.getInstance().getExtensionList(SlackRouterCommand.class);
     }
 }
@@ -6,6 +6,9 @@ import jenkins.model.GlobalConfiguration;
 
 import hudson.Extension;
 
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+
 import hudson.model.UnprotectedRootAction;
 
 import javax.servlet.ServletException;
@@ -42,6 +45,8 @@ public class WebhookEndpoint implements UnprotectedRootAction {
     private static final Logger LOGGER =
         Logger.getLogger(WebhookEndpoint.class.getName());
 
+    private static volatile CommandRouter<SlackTextMessage> commandRouter;
+
     public WebhookEndpoint() {
         globalConfig = GlobalConfiguration.all().get(GlobalConfig.class);
     }
@@ -73,41 +78,37 @@ public class WebhookEndpoint implements UnprotectedRootAction {
                 StaplerResponse.SC_OK); 
     
         String commandText = data.getText();
-        if (commandText == null || commandText.isEmpty())
-            return new JsonResponse(new SlackTextMessage("Invalid command, text field required"),
-                StaplerResponse.SC_OK);
-
         String triggerWord = data.getTrigger_word();
-        if (triggerWord == null || triggerWord.isEmpty())
-            return new JsonResponse(new SlackTextMessage("Invalid command, trigger_word field required"),
-                StaplerResponse.SC_OK);
-
-        if (!commandText.startsWith(triggerWord))
-            return new JsonResponse(new SlackTextMessage("Invalid command, invalid trigger_word"),
-                StaplerResponse.SC_OK);
-
-        commandText = commandText.trim().replaceFirst(triggerWord, "").trim();
+        String slashCommand = data.getCommand();
+
+        if ((triggerWord == null || triggerWord.isEmpty()) && slashCommand != null && !slashCommand.isEmpty()) {
+            // a slash command sends its text without the command, and no text at all when used alone
+            triggerWord = slashCommand;
+            commandText = commandText != null ? commandText.trim() : "";
+        } else {
+            if (commandText == null || commandText.isEmpty())
+                return new JsonResponse(new SlackTextMessage("Invalid command, text field required"),
+                    StaplerResponse.SC_OK);
+
+            if (triggerWord == null || triggerWord.isEmpty())
+                return new JsonResponse(new SlackTextMessage("Invalid command, trigger_word field required"),
+                    StaplerResponse.SC_OK);
+
+            if (!commandText.startsWith(triggerWord))
+                return new JsonResponse(new SlackTextMessage("Invalid command, invalid trigger_word"),
+                    StaplerResponse.SC_OK);
+
+            // startsWith was checked above, so the trigger word can be cut off without a regex
+            commandText = commandText.trim().substring(triggerWord.length()).trim();
+        }
 
-        CommandRouter<SlackTextMessage> router =
-            new CommandRouter<SlackTextMessage>();
+        CommandRouter<SlackTextMessage> router = getRouter();
 
         try {
-            router.addRoute("^list projects",
-                triggerWord+" list projects",
-                "Return a list of buildable projects",
-                new ListProjectsCommand(data))
-            .addRoute("^run ([\\p{L}\\p{N}\\p{ASCII}\\W]+)",
-                triggerWord+" run <project_name>",
-                "Schedule a run for <project_name>",
-                new ScheduleJobCommand(data))
-            .addRoute("^get ([\\p{L}\\p{N}\\p{ASCII}\\W]+) #([0-9]+) log",
-                triggerWord+" get <project-name> #<build_number> log",
-                "Return a truncated log for build #<build_number> of <project_name>",
-                new GetProjectLogCommand(data));
-
-            SlackTextMessage msg = router.route(commandText);
-
-            return new JsonResponse(msg, StaplerResponse.SC_OK);
+            CommandContext context = new CommandContext(data, triggerWord);
+            SlackTextMessage msg = router.route(context, commandText);
+
+            return new AnswerResponse(new JsonResponse(msg, StaplerResponse.SC_OK), context);
             
         } catch (RouteNotFoundException ex) {
 
@@ -122,7 +123,7 @@ public class WebhookEndpoint implements UnprotectedRootAction {
                 response += "\n";
 
             for (CommandRouter.Route route : router.getRoutes()) {
-                response += "`"+route.command+"`\n```"+route.commandDescription+"```";
+                response += "`"+triggerWord+" "+route.command+"`\n```"+route.commandDescription+"```";
                 response += "\n\n";
             }
 
@@ -138,6 +139,62 @@ public class WebhookEndpoint implements UnprotectedRootAction {
         }
     }
 
+    /**
+     * Sends the answer to a command, then lets the messages following it be posted.
+     */
+    private static final class AnswerResponse implements HttpResponse {
+        private final HttpResponse answer;
+        private final CommandContext context;
+
+        AnswerResponse(HttpResponse answer, CommandContext context) {
+            this.answer = answer;
+            this.context = context;
+        }
+
+        @Override
+        public void generateResponse(StaplerRequest req, StaplerResponse rsp, Object node) throws IOException,
+            ServletException {
+
+            try {
+                answer.generateResponse(req, rsp, node);
+                // ends the response rather than leaving it to the container
+                rsp.getWriter().close();
+            } finally {
+                context.answered();
+            }
+        }
+    }
+
+    /**
+     * The router of the commands registered as {@link SlackRouterCommand} extensions, set up once for
+     * all requests.
+     */
+    static CommandRouter<SlackTextMessage> getRouter() {
+        if (commandRouter == null) {
+            initRouter();
+        }
+        return commandRouter;
+    }
+
+    @Initializer(after = InitMilestone.EXTENSIONS_AUGMENTED)
+    public static synchronized void initRouter() {
+        if (commandRouter == null) {
+            commandRouter = createRouter(SlackRouterCommand.all());
+        }
+    }
+
+    static CommandRouter<SlackTextMessage> createRouter(Iterable<? extends SlackRouterCommand> commands) {
+        CommandRouter<SlackTextMessage> router = new CommandRouter<SlackTextMessage>();
+        for (SlackRouterCommand command : commands) {
+            router.addRoute(command.getKeyword(),
+                command.getRegex(),
+                command.getUsage(),
+                command.getDescription(),
+                command);
+        }
+        return router;
+    }
+
     @Override
     public String getIconFileName() {
         return null;
@@ -14,6 +14,8 @@ public class SlackPostData {
     private String user_id;
     private String user_name;
     private String trigger_word;
+    private String command;
+    private String response_url;
 
     public SlackPostData() {
 
@@ -98,5 +100,20 @@ public class SlackPostData {
     public String getTrigger_word() {
         return this.trigger_word;
     }
-}
 
+    public void setCommand(String command) {
+        this.command = command;
+    }
+
+    public String getCommand() {
+        return this.command;
+    }
+
+    public void setResponse_url(String response_url) {
+        this.response_url = response_url;
+    }
+
+    public String getResponse_url() {
+        return this.response_url;
+    }
+}
@@ -9,6 +9,7 @@ import jenkins.plugins.slack.Messages;
 import jenkins.plugins.slack.SlackNotifier;
 import jenkins.plugins.slack.SlackService;
 import jenkins.plugins.slack.StandardSlackService;
+import jenkins.plugins.slack.Timeouts;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
 import org.jenkinsci.plugins.workflow.steps.AbstractSynchronousNonBlockingStepExecution;
@@ -30,6 +31,9 @@ public class SlackSendStep extends AbstractStepImpl {
     private String channel;
     private String teamDomain;
     private boolean failOnError;
+    /** in seconds, 0 for the global setting */
+    private int readTimeout;
+    private int timeout;
 
 
     @Nonnull
@@ -82,6 +86,24 @@ public class SlackSendStep extends AbstractStepImpl {
         this.failOnError = failOnError;
     }
 
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    @DataBoundSetter
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = Math.max(0, readTimeout);
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    @DataBoundSetter
+    public void setTimeout(int timeout) {
+        this.timeout = Math.max(0, timeout);
+    }
+
     @DataBoundConstructor
     public SlackSendStep(@Nonnull String message) {
         this.message = message;
@@ -132,11 +154,14 @@ public class SlackSendStep extends AbstractStepImpl {
             String token = step.token != null ? step.token : slackDesc.getToken();
             String channel = step.channel != null ? step.channel : slackDesc.getRoom();
             String color = step.color != null ? step.color : "";
+            Timeouts timeouts = slackDesc.getTimeouts()
+                    .withReadTimeout(step.readTimeout * 1000)
+                    .withDeadline(step.timeout * 1000L);
 
             //placing in console log to simplify testing of retrieving values from global config or from step field; also used for tests
             listener.getLogger().println(Messages.SlackSendStepConfig(step.teamDomain == null, step.token == null, step.channel == null, step.color == null));
 
-            SlackService slackService = getSlackService(team, token, channel);
+            SlackService slackService = getSlackService(team, token, channel, timeouts);
             boolean publishSuccess = slackService.publish(step.message, color);
             if (!publishSuccess && step.failOnError) {
                 throw new AbortException(Messages.NotificationFailed());
@@ -147,8 +172,8 @@ public class SlackSendStep extends AbstractStepImpl {
         }
 
         //streamline unit testing
-        SlackService getSlackService(String team, String token, String channel) {
-            return new StandardSlackService(team, token, channel);
+        SlackService getSlackService(String team, String token, String channel, Timeouts timeouts) {
+            return new StandardSlackService(team, token, channel, timeouts);
         }
 
     }
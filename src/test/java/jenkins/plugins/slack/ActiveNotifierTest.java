@@ -0,0 +1,76 @@
+package jenkins.plugins.slack;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.StreamBuildListener;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ActiveNotifierTest {
+
+    @Rule
+    public final JenkinsRule jenkinsRule = new JenkinsRule();
+
+    private SlackNotifierTest.SlackServiceStub slackService;
+    private SlackNotifierStub.DescriptorImplStub descriptor;
+    private SlackNotifier notifier;
+
+    @Before
+    public void setUp() {
+        slackService = new SlackNotifierTest.SlackServiceStub();
+        descriptor = new SlackNotifierStub.DescriptorImplStub();
+        notifier = new SlackNotifierStub("teamDomain", "token", "#room", "http://localhost/", null, false, false,
+                false, false, true, false, false, false, false, CommitInfoChoice.AUTHORS_AND_TITLES, false, null) {
+            @Override
+            public DescriptorImpl getDescriptor() {
+                return descriptor;
+            }
+
+            @Override
+            public SlackService newSlackService(BuildVariableResolver variables) {
+                return slackService;
+            }
+        };
+    }
+
+    @Test
+    public void compoundMessageIsOnePayloadWithTheStatusAndTheCommits() throws Exception {
+        descriptor.setCompoundMessage(true);
+        FreeStyleBuild build = jenkinsRule.buildAndAssertSuccess(jenkinsRule.createFreeStyleProject());
+
+        new ActiveNotifier(notifier, listener()).completed(build);
+
+        List<SlackPayload> published = slackService.getPublished();
+        assertEquals(1, published.size());
+        List<SlackPayload.Attachment> attachments = published.get(0).getAttachments();
+        assertEquals(2, attachments.size());
+        assertTrue(attachments.get(0).getText(), attachments.get(0).getText().contains("Success"));
+        assertEquals("No Changes.", attachments.get(1).getText());
+        assertEquals("good", attachments.get(0).getColor());
+        assertEquals("good", attachments.get(1).getColor());
+    }
+
+    @Test
+    public void statusAndCommitsAreTwoPayloadsByDefault() throws Exception {
+        FreeStyleBuild build = jenkinsRule.buildAndAssertSuccess(jenkinsRule.createFreeStyleProject());
+
+        new ActiveNotifier(notifier, listener()).completed(build);
+
+        List<SlackPayload> published = slackService.getPublished();
+        assertEquals(2, published.size());
+        assertTrue(published.get(0).getAttachments().get(0).getText().contains("Success"));
+        assertEquals(1, published.get(1).getAttachments().size());
+        assertTrue(published.get(1).getAttachments().get(0).getText().contains("No Changes."));
+    }
+
+    private static StreamBuildListener listener() {
+        return new StreamBuildListener(System.out, Charset.defaultCharset());
+    }
+}
@@ -0,0 +1,156 @@
+package jenkins.plugins.slack;
+
+import hudson.model.User;
+import hudson.scm.ChangeLogSet;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AuthorNameCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void authorIsLookedUpOncePerAuthorName() {
+        AuthorNameCache cache = new AuthorNameCache(10, 60 * 1000L, null);
+        User user = user("Alice Liddell");
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Alice Liddell", cache.getDisplayName(new GitLikeEntry("alice", "c" + i, user), 0));
+        }
+        verify(user, times(1)).getDisplayName();
+    }
+
+    @Test
+    public void namesExpire() {
+        AuthorNameCache cache = new AuthorNameCache(10, 1000L, null);
+        User user = user("Alice Liddell");
+        cache.getDisplayName(new GitLikeEntry("alice", "c1", user), 0);
+        cache.getDisplayName(new GitLikeEntry("alice", "c2", user), 999);
+        cache.getDisplayName(new GitLikeEntry("alice", "c3", user), 1000);
+        verify(user, times(2)).getDisplayName();
+    }
+
+    @Test
+    public void leastRecentlyUsedNamesAreEvicted() {
+        AuthorNameCache cache = new AuthorNameCache(1, 60 * 1000L, null);
+        User alice = user("Alice");
+        cache.getDisplayName(new GitLikeEntry("alice", "c1", alice), 0);
+        cache.getDisplayName(new GitLikeEntry("bob", "c2", user("Bob")), 0);
+        cache.getDisplayName(new GitLikeEntry("alice", "c3", alice), 0);
+        verify(alice, times(2)).getDisplayName();
+    }
+
+    @Test
+    public void entriesWithoutAuthorNameAreCachedByUser() {
+        AuthorNameCache cache = new AuthorNameCache(10, 60 * 1000L, null);
+        User user = user("Alice");
+        when(user.getId()).thenReturn("alice");
+        for (int i = 0; i < 10; i++) {
+            ChangeLogSet.Entry entry = mock(ChangeLogSet.Entry.class);
+            when(entry.getAuthor()).thenReturn(user);
+            when(entry.getCommitId()).thenReturn("c" + i);
+            cache.getDisplayName(entry, 0);
+        }
+        verify(user, times(1)).getDisplayName();
+    }
+
+    @Test
+    public void mentionsAreReadFromTheFile() throws IOException {
+        File file = folder.newFile(AuthorNameCache.MENTIONS_FILE);
+        writeLines(file, "# commit author = Slack member", "alice = U024BE7LH", "Bob Smith=bob", "broken line");
+        AuthorNameCache cache = new AuthorNameCache(10, 60 * 1000L, new AuthorNameCache.MentionFile(file));
+        assertEquals("U024BE7LH", cache.getMention(new GitLikeEntry("alice", "c1", user("Alice")), "Alice"));
+        assertEquals("bob", cache.getMention(new GitLikeEntry("bsmith", "c2", user("Bob Smith")), "Bob Smith"));
+        assertNull(cache.getMention(new GitLikeEntry("carol", "c3", user("Carol")), "Carol"));
+    }
+
+    @Test
+    public void missingFileMeansNoMentions() throws IOException {
+        AuthorNameCache.MentionFile file = new AuthorNameCache.MentionFile(new File(folder.getRoot(), "missing"));
+        assertTrue(file.load().isEmpty());
+    }
+
+    @Test
+    public void failedLoadKeepsThePreviousMentions() {
+        final Map<String, String> mentions = Collections.singletonMap("alice", "U1");
+        AuthorNameCache cache = new AuthorNameCache(10, 60 * 1000L, new AuthorNameCache.MentionSource() {
+            private boolean loaded;
+
+            public Map<String, String> load() throws IOException {
+                if (loaded) {
+                    throw new IOException("unreachable");
+                }
+                loaded = true;
+                return mentions;
+            }
+        });
+        assertEquals(mentions, cache.getMentions(0));
+        assertEquals(mentions, cache.getMentions(AuthorNameCache.MENTIONS_REFRESH));
+    }
+
+    private static User user(String displayName) {
+        User user = mock(User.class);
+        when(user.getDisplayName()).thenReturn(displayName);
+        return user;
+    }
+
+    private static void writeLines(File file, String... lines) throws IOException {
+        FileUtils.writeLines(file, "UTF-8", Arrays.asList(lines));
+    }
+
+    /**
+     * Records the author name as Git does.
+     */
+    public static class GitLikeEntry extends ChangeLogSet.Entry {
+        private final String authorName;
+        private final String commitId;
+        private final User author;
+
+        GitLikeEntry(String authorName, String commitId, User author) {
+            this.authorName = authorName;
+            this.commitId = commitId;
+            this.author = author;
+        }
+
+        public String getAuthorName() {
+            return authorName;
+        }
+
+        @Override
+        public String getCommitId() {
+            return commitId;
+        }
+
+        @Override
+        public String getMsg() {
+            return "message";
+        }
+
+        @Override
+        public User getAuthor() {
+            return author;
+        }
+
+        @Override
+        public Collection<String> getAffectedPaths() {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package jenkins.plugins.slack;
+
+import hudson.model.Result;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BuildTransitionIndexTest {
+
+    @Test
+    public void firstBuildHasNoPredecessor() {
+        BuildTransitionIndex.PreviousBuilds previous = new BuildTransitionIndex().before(1);
+        assertNull(previous.getResult());
+        assertNull(previous.getNonAbortedResult());
+        assertFalse(previous.hasSucceeded());
+    }
+
+    @Test
+    public void abortedBuildsAreSkipped() {
+        BuildTransitionIndex index = new BuildTransitionIndex();
+        index.record(1, Result.SUCCESS, 100);
+        index.record(2, Result.FAILURE, 200);
+        index.record(3, Result.ABORTED, 300);
+        index.record(4, Result.ABORTED, 400);
+
+        BuildTransitionIndex.PreviousBuilds previous = index.before(5);
+        assertEquals(Result.ABORTED, previous.getResult());
+        assertEquals(Result.FAILURE, previous.getNonAbortedResult());
+        assertEquals(100, previous.getLastSuccessEndTime());
+    }
+
+    @Test
+    public void lookupIsRelativeToTheGivenBuild() {
+        BuildTransitionIndex index = new BuildTransitionIndex();
+        index.record(1, Result.FAILURE, 100);
+        // build 3 completed before build 2, which is still running
+        index.record(3, Result.SUCCESS, 300);
+
+        assertEquals(Result.FAILURE, index.before(2).getNonAbortedResult());
+        assertFalse(index.before(2).hasSucceeded());
+        assertEquals(Result.SUCCESS, index.before(4).getNonAbortedResult());
+    }
+
+    @Test
+    public void evictedBuildsAreSummarized() {
+        BuildTransitionIndex index = new BuildTransitionIndex();
+        index.record(1, Result.SUCCESS, 100);
+        index.record(2, Result.UNSTABLE, 200);
+        for (int i = 3; i < 3 + BuildTransitionIndex.MAX_RECENT; i++) {
+            index.record(i, Result.ABORTED, i * 100);
+        }
+
+        BuildTransitionIndex.PreviousBuilds previous = index.before(3 + BuildTransitionIndex.MAX_RECENT);
+        assertEquals(Result.ABORTED, previous.getResult());
+        assertEquals(Result.UNSTABLE, previous.getNonAbortedResult());
+        assertTrue(previous.hasSucceeded());
+        assertEquals(100, previous.getLastSuccessEndTime());
+    }
+}
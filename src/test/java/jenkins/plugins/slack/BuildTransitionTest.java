@@ -0,0 +1,84 @@
+package jenkins.plugins.slack;
+
+import hudson.model.Result;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BuildTransitionTest {
+
+    @Test
+    public void firstBuildComesAfterASuccess() {
+        BuildTransition transition = BuildTransition.of(Result.FAILURE, 1000, new BuildTransitionIndex().before(1));
+        assertEquals(Result.SUCCESS, transition.getPreviousResult());
+        assertFalse(transition.hasSucceededBefore());
+        assertFalse(transition.isRepeatedFailure());
+        assertFalse(transition.isBackToNormal());
+        assertEquals("danger", transition.getColor());
+    }
+
+    @Test
+    public void onlyAbortedBuildsBeforeComeAfterASuccess() {
+        BuildTransitionIndex index = new BuildTransitionIndex();
+        index.record(1, Result.ABORTED, 100);
+        BuildTransition transition = BuildTransition.of(Result.ABORTED, 200, index.before(2));
+        assertEquals(Result.SUCCESS, transition.getPreviousResult());
+        assertEquals("warning", transition.getColor());
+    }
+
+    @Test
+    public void successAfterAFailureIsBackToNormal() {
+        BuildTransitionIndex index = new BuildTransitionIndex();
+        index.record(1, Result.SUCCESS, 1000);
+        index.record(2, Result.FAILURE, 2000);
+        index.record(3, Result.ABORTED, 3000);
+        BuildTransition transition = BuildTransition.of(Result.SUCCESS, 5000, index.before(4));
+        assertEquals(Result.FAILURE, transition.getPreviousResult());
+        assertTrue(transition.isBackToNormal());
+        // since the end of the last successful build
+        assertEquals(4000, transition.getBackToNormalDuration());
+    }
+
+    @Test
+    public void successAfterUnstableIsBackToNormal() {
+        BuildTransitionIndex index = new BuildTransitionIndex();
+        index.record(1, Result.SUCCESS, 1000);
+        index.record(2, Result.UNSTABLE, 2000);
+        assertTrue(BuildTransition.of(Result.SUCCESS, 2500, index.before(3)).isBackToNormal());
+    }
+
+    @Test
+    public void successThatNeverSucceededBeforeIsNotBackToNormal() {
+        BuildTransitionIndex index = new BuildTransitionIndex();
+        index.record(1, Result.FAILURE, 1000);
+        BuildTransition transition = BuildTransition.of(Result.SUCCESS, 2000, index.before(2));
+        assertFalse(transition.isBackToNormal());
+        assertEquals(-1, transition.getBackToNormalDuration());
+    }
+
+    @Test
+    public void successAfterASuccessIsNotBackToNormal() {
+        BuildTransitionIndex index = new BuildTransitionIndex();
+        index.record(1, Result.SUCCESS, 1000);
+        BuildTransition transition = BuildTransition.of(Result.SUCCESS, 2000, index.before(2));
+        assertFalse(transition.isBackToNormal());
+        assertEquals(-1, transition.getBackToNormalDuration());
+    }
+
+    @Test
+    public void failureAfterAFailureIsRepeated() {
+        BuildTransitionIndex index = new BuildTransitionIndex();
+        index.record(1, Result.FAILURE, 1000);
+        index.record(2, Result.ABORTED, 2000);
+        assertTrue(BuildTransition.of(Result.FAILURE, 3000, index.before(3)).isRepeatedFailure());
+    }
+
+    @Test
+    public void failureAfterUnstableIsNotRepeated() {
+        BuildTransitionIndex index = new BuildTransitionIndex();
+        index.record(1, Result.UNSTABLE, 1000);
+        assertFalse(BuildTransition.of(Result.FAILURE, 2000, index.before(2)).isRepeatedFailure());
+    }
+}
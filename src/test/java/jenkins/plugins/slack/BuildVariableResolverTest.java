@@ -0,0 +1,79 @@
+package jenkins.plugins.slack;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.tasks.test.AbstractTestResultAction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BuildVariableResolverTest {
+
+    private AbstractBuild build;
+    private BuildVariableResolver variables;
+
+    @Before
+    public void setUp() throws Exception {
+        build = mock(AbstractBuild.class);
+        when(build.getBuildVariables()).thenReturn(Collections.singletonMap("ROOM", "#builds"));
+        EnvVars env = new EnvVars();
+        env.put("TEAM", "team");
+        env.put("ROOM", "#ignored");
+        when(build.getEnvironment(any(TaskListener.class))).thenReturn(env);
+        variables = new BuildVariableResolver(build, TaskListener.NULL);
+    }
+
+    @Test
+    public void plainTemplateDoesNotComputeAnything() throws Exception {
+        assertEquals("#general", variables.expand("#general"));
+        verify(build, never()).getBuildVariables();
+        verify(build, never()).getEnvironment(any(TaskListener.class));
+    }
+
+    @Test
+    public void buildVariablesAreResolvedWithoutTheEnvironment() throws Exception {
+        assertEquals("#builds", variables.expand("${ROOM}"));
+        verify(build, never()).getEnvironment(any(TaskListener.class));
+    }
+
+    @Test
+    public void environmentIsComputedOnce() throws Exception {
+        assertEquals("team", variables.expand("$TEAM"));
+        assertEquals("team #builds", variables.expand("${TEAM} ${ROOM}"));
+        verify(build, times(1)).getEnvironment(any(TaskListener.class));
+    }
+
+    @Test
+    public void builtInsComeFromTheBuild() throws Exception {
+        when(build.getResult()).thenReturn(Result.UNSTABLE);
+        AbstractTestResultAction tests = mock(AbstractTestResultAction.class);
+        when(tests.getTotalCount()).thenReturn(10);
+        when(tests.getFailCount()).thenReturn(2);
+        when(tests.getSkipCount()).thenReturn(1);
+        when(build.getAction(AbstractTestResultAction.class)).thenReturn(tests);
+        assertEquals("UNSTABLE: 7 passed, 2 failed of 10",
+                variables.expand("$BUILD_RESULT: $TESTS_PASSED passed, ${TESTS_FAILED} failed of $TESTS_TOTAL"));
+        verify(build, never()).getEnvironment(any(TaskListener.class));
+    }
+
+    @Test
+    public void testCountsAreZeroWithoutTests() {
+        assertEquals("0", variables.expand("$TESTS_FAILED"));
+    }
+
+    @Test
+    public void unknownVariablesAreLeftAsIs() {
+        assertEquals("${UNKNOWN}", variables.expand("${UNKNOWN}"));
+    }
+}
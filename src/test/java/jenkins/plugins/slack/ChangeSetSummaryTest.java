@@ -0,0 +1,71 @@
+package jenkins.plugins.slack;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeSetSummaryTest {
+
+    @Test
+    public void authorsAreCappedAndDeduplicated() {
+        ChangeSetSummary summary = new ChangeSetSummary(2, null);
+        summary.addAuthor("alice");
+        summary.addAuthor("bob");
+        summary.addAuthor("alice");
+        assertFalse(summary.hasMoreAuthors());
+        summary.addAuthor("carol");
+        assertEquals(Arrays.asList("alice", "bob"), Arrays.asList(summary.getAuthors().toArray()));
+        assertTrue(summary.hasMoreAuthors());
+    }
+
+    @Test
+    public void filesAreCountedWithoutAHistogram() {
+        ChangeSetSummary summary = new ChangeSetSummary(20, null);
+        for (int i = 0; i < 10000; i++) {
+            summary.addFile("src/main/File" + i + ".java");
+        }
+        assertEquals(10000, summary.getFileCount());
+        assertTrue(summary.getTopDirectories(5).isEmpty());
+    }
+
+    @Test
+    public void histogramGroupsFilesByDirectoryUpToItsDepth() {
+        ChangeSetSummary summary = new ChangeSetSummary(20, new ChangeSetSummary.PathTrie(2, 100));
+        summary.addFile("core/api/Foo.java");
+        summary.addFile("core/api/deep/Bar.java");
+        summary.addFile("/core/api/Baz.java");
+        summary.addFile("web/ui/index.js");
+        summary.addFile("web/ui/app.js");
+        summary.addFile("README.md");
+        List<Map.Entry<String, Integer>> top = summary.getTopDirectories(2);
+        assertEquals(2, top.size());
+        assertEquals("core/api", top.get(0).getKey());
+        assertEquals(3, (int) top.get(0).getValue());
+        assertEquals("web/ui", top.get(1).getKey());
+        assertEquals(2, (int) top.get(1).getValue());
+        assertEquals("/", summary.getTopDirectories(3).get(2).getKey());
+    }
+
+    @Test
+    public void filesBeyondTheNodeCapGoToTheirDeepestKnownDirectory() {
+        ChangeSetSummary.PathTrie trie = new ChangeSetSummary.PathTrie(2, 2);
+        trie.add("core/api/Foo.java");
+        trie.add("core/impl/Foo.java");
+        trie.add("web/ui/index.js");
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (Map.Entry<String, Integer> directory : trie.top(5)) {
+            counts.put(directory.getKey(), directory.getValue());
+        }
+        assertEquals(3, counts.size());
+        assertEquals(1, (int) counts.get("core/api"));
+        assertEquals(1, (int) counts.get("core"));
+        assertEquals(1, (int) counts.get("/"));
+    }
+}
@@ -0,0 +1,94 @@
+package jenkins.plugins.slack;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensOnceFailureRateIsExceeded() {
+        CircuitBreaker breaker = new CircuitBreaker("team", 10, 4, 50, 60 * 1000L);
+        record(breaker, false);
+        record(breaker, true);
+        record(breaker, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        record(breaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void staysClosedUnderMinimumCalls() {
+        CircuitBreaker breaker = new CircuitBreaker("team", 10, 5, 50, 60 * 1000L);
+        for (int i = 0; i < 4; i++) {
+            record(breaker, true);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(100, breaker.getFailureRate());
+    }
+
+    @Test
+    public void oldOutcomesLeaveTheWindow() {
+        CircuitBreaker breaker = new CircuitBreaker("team", 4, 4, 75, 60 * 1000L);
+        record(breaker, true);
+        record(breaker, true);
+        for (int i = 0; i < 4; i++) {
+            record(breaker, false);
+        }
+        assertEquals(0, breaker.getFailureRate());
+        record(breaker, true);
+        record(breaker, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void successfulProbeClosesTheBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker("team", 2, 2, 50, 0);
+        record(breaker, true);
+        record(breaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse("open period is over", breaker.isOpen());
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse("only one probe at a time", breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedProbeOpensTheBreakerAgain() {
+        CircuitBreaker breaker = new CircuitBreaker("team", 2, 2, 50, 0);
+        record(breaker, true);
+        record(breaker, true);
+
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void releasedProbeLetsAnotherOneThrough() {
+        CircuitBreaker breaker = new CircuitBreaker("team", 2, 2, 50, 0);
+        record(breaker, true);
+        record(breaker, true);
+
+        assertTrue(breaker.allowRequest());
+        breaker.release();
+        assertTrue(breaker.allowRequest());
+    }
+
+    private static void record(CircuitBreaker breaker, boolean failure) {
+        assertTrue(breaker.allowRequest());
+        if (failure) {
+            breaker.recordFailure();
+        } else {
+            breaker.recordSuccess();
+        }
+    }
+}
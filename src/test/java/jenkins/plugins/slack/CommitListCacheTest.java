@@ -0,0 +1,108 @@
+package jenkins.plugins.slack;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CommitListCacheTest {
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Test
+    public void listIsRenderedOncePerKey() {
+        CommitListCache cache = new CommitListCache(10, 60 * 1000L);
+        assertEquals(Collections.singletonList("list 1"), cache.get("upstream#1", render(), 0));
+        assertEquals(Collections.singletonList("list 1"), cache.get("upstream#1", render(), 1000));
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedListIsEvictedFirst() {
+        CommitListCache cache = new CommitListCache(2, 60 * 1000L);
+        cache.get("a", render(), 0);
+        cache.get("b", render(), 0);
+        cache.get("a", render(), 0);
+        cache.get("c", render(), 0);
+        assertEquals(2, cache.size());
+        assertEquals(3, renders.get());
+        cache.get("a", render(), 0);
+        assertEquals(3, renders.get());
+        cache.get("b", render(), 0);
+        assertEquals(4, renders.get());
+    }
+
+    @Test
+    public void oldListsAreRenderedAgain() {
+        CommitListCache cache = new CommitListCache(10, 1000L);
+        cache.get("a", render(), 0);
+        cache.get("b", render(), 500);
+        assertEquals(Collections.singletonList("list 3"), cache.get("a", render(), 1000));
+        assertEquals(2, cache.size());
+        cache.get("c", render(), 1600);
+        // b expired on the way
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void failedRenderIsNotCached() {
+        CommitListCache cache = new CommitListCache(10, 60 * 1000L);
+        try {
+            cache.get("a", new Callable<List<String>>() {
+                public List<String> call() {
+                    throw new IllegalArgumentException("broken changelog");
+                }
+            }, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, cache.size());
+        assertEquals(Collections.singletonList("list 1"), cache.get("a", render(), 0));
+    }
+
+    @Test
+    public void concurrentLookupsWaitForTheRenderInProgress() throws Exception {
+        final CommitListCache cache = new CommitListCache(10, 60 * 1000L);
+        final CountDownLatch rendering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread first = new Thread() {
+            @Override
+            public void run() {
+                cache.get("a", new Callable<List<String>>() {
+                    public List<String> call() throws Exception {
+                        rendering.countDown();
+                        release.await();
+                        return Collections.singletonList("slow " + renders.incrementAndGet());
+                    }
+                }, 0);
+            }
+        };
+        first.start();
+        rendering.await();
+        Thread second = new Thread() {
+            @Override
+            public void run() {
+                cache.get("a", render(), 0);
+            }
+        };
+        second.start();
+        release.countDown();
+        first.join();
+        second.join();
+        assertEquals(1, renders.get());
+    }
+
+    private Callable<List<String>> render() {
+        return new Callable<List<String>>() {
+            public List<String> call() {
+                return Collections.singletonList("list " + renders.incrementAndGet());
+            }
+        };
+    }
+}
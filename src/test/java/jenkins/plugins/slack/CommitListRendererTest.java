@@ -0,0 +1,128 @@
+package jenkins.plugins.slack;
+
+import hudson.model.User;
+import hudson.scm.ChangeLogSet.Entry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommitListRendererTest {
+
+    private final Map<String, String> mentions = new HashMap<String, String>();
+    private final AuthorNameCache authors = new AuthorNameCache(100, 60 * 1000L,
+            new AuthorNameCache.MentionSource() {
+                public Map<String, String> load() {
+                    return mentions;
+                }
+            });
+
+    @Test
+    public void commitsKeepTheirChangelogOrder() {
+        CommitListRenderer renderer = new CommitListRenderer(CommitInfoChoice.AUTHORS_AND_TITLES, authors,
+                50, 10000, 3000);
+        List<String> parts = renderer.render("Job - #1 ", commits("alice", "second", "bob", "first", "alice", "<third>"));
+        assertEquals(Collections.singletonList(
+                "Job - #1 Changes:\n- second [alice]\n- first [bob]\n- &lt;third&gt; [alice]"), parts);
+    }
+
+    @Test
+    public void repeatedLinesAreShownOnce() {
+        CommitListRenderer renderer = new CommitListRenderer(CommitInfoChoice.AUTHORS, authors, 50, 10000, 3000);
+        List<String> parts = renderer.render("", commits("alice", "one", "bob", "two", "alice", "three"));
+        assertEquals(Collections.singletonList("Changes:\n-  [alice]\n-  [bob]"), parts);
+    }
+
+    @Test
+    public void commitsBeyondTheCountAreSummedUp() {
+        CommitListRenderer renderer = new CommitListRenderer(CommitInfoChoice.AUTHORS_AND_TITLES, authors,
+                2, 10000, 3000);
+        List<String> parts = renderer.render("", commits("a", "1", "b", "2", "c", "3", "d", "4"));
+        assertEquals(Collections.singletonList("Changes:\n- 1 [a]\n- 2 [b]\n…and 2 more"), parts);
+    }
+
+    @Test
+    public void commitsBeyondTheLengthBudgetAreSummedUp() {
+        CommitListRenderer renderer = new CommitListRenderer(CommitInfoChoice.AUTHORS_AND_TITLES, authors,
+                50, 20, 3000);
+        List<String> parts = renderer.render("", commits("a", "first commit", "b", "second commit", "c", "third"));
+        assertEquals(Collections.singletonList("Changes:\n- first commit [a]\n- second commit [b]\n…and 1 more"),
+                parts);
+    }
+
+    @Test
+    public void longListsAreSplitIntoParts() {
+        CommitListRenderer renderer = new CommitListRenderer(CommitInfoChoice.AUTHORS_AND_TITLES, authors,
+                1000, 100000, 200);
+        String[] commits = new String[200];
+        for (int i = 0; i < commits.length; i += 2) {
+            commits[i] = "author";
+            commits[i + 1] = "commit number " + i;
+        }
+        List<String> parts = renderer.render("", commits(commits));
+        assertTrue(parts.size() > 1);
+        int lines = 0;
+        for (String part : parts) {
+            assertTrue(part.length() <= 200);
+            assertTrue(!part.startsWith("\n"));
+            lines += part.split("\n").length;
+        }
+        // the header line plus one line per commit
+        assertEquals(101, lines);
+    }
+
+    @Test
+    public void longMessagesAreTruncated() {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            message.append("&");
+        }
+        CommitListRenderer renderer = new CommitListRenderer(CommitInfoChoice.AUTHORS_AND_TITLES, authors,
+                50, 100000, 500);
+        List<String> parts = renderer.render("", commits("a", message.toString()));
+        for (String part : parts) {
+            assertTrue(part.length() <= 500);
+        }
+        assertTrue(parts.get(parts.size() - 1).endsWith("&amp;… [a]"));
+    }
+
+    @Test
+    public void authorsWithAMemberAreMentioned() {
+        mentions.put("alice", "U024BE7LH");
+        CommitListRenderer renderer = new CommitListRenderer(CommitInfoChoice.AUTHORS_AND_TITLES, authors,
+                50, 10000, 3000);
+        List<String> parts = renderer.render("", commits("alice", "fix", "bob", "<b>"));
+        assertEquals(Collections.singletonList("Changes:\n- fix [<@U024BE7LH>]\n- &lt;b&gt; [bob]"), parts);
+    }
+
+    @Test
+    public void noCommitsNoParts() {
+        CommitListRenderer renderer = new CommitListRenderer(CommitInfoChoice.AUTHORS_AND_TITLES, authors,
+                50, 10000, 3000);
+        assertTrue(renderer.render("", new ArrayList<Entry>()).isEmpty());
+    }
+
+    /**
+     * @param authorsAndMessages author and message of each commit
+     */
+    private static List<Entry> commits(String... authorsAndMessages) {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (int i = 0; i < authorsAndMessages.length; i += 2) {
+            User author = mock(User.class);
+            when(author.getDisplayName()).thenReturn(authorsAndMessages[i]);
+            Entry entry = mock(Entry.class);
+            when(entry.getAuthor()).thenReturn(author);
+            when(entry.getMsg()).thenReturn(authorsAndMessages[i + 1]);
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,88 @@
+package jenkins.plugins.slack;
+
+import hudson.ProxyConfiguration;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class HttpClientPoolTest {
+
+    @After
+    public void tearDown() {
+        HttpClientPool.start();
+        HttpClientPool.shutdown();
+        HttpClientPool.setConnectTimeout(Timeouts.DEFAULT.getConnectTimeout());
+    }
+
+    @Test
+    public void clientsShareOneConnectionManager() {
+        MultiThreadedHttpConnectionManager first = HttpClientPool.connectionManagerFor(null);
+        MultiThreadedHttpConnectionManager second = HttpClientPool.connectionManagerFor(null);
+        assertSame(first, second);
+        assertSame(first, HttpClientPool.newHttpClient().getHttpConnectionManager());
+    }
+
+    @Test
+    public void poolIsRecreatedAfterShutdown() {
+        MultiThreadedHttpConnectionManager first = HttpClientPool.connectionManagerFor(null);
+        HttpClientPool.shutdown();
+        assertNotSame(first, HttpClientPool.connectionManagerFor(null));
+    }
+
+    @Test
+    public void poolLimitsAreApplied() {
+        MultiThreadedHttpConnectionManager manager = HttpClientPool.connectionManagerFor(null);
+        assertEquals(HttpClientPool.MAX_TOTAL_CONNECTIONS, manager.getParams().getMaxTotalConnections());
+        assertEquals(HttpClientPool.MAX_CONNECTIONS_PER_HOST, manager.getParams().getDefaultMaxConnectionsPerHost());
+        assertEquals(0, HttpClientPool.getStats().getConnectionsInPool());
+    }
+
+    @Test
+    public void connectTimeoutIsTheConfiguredOne() {
+        HttpClientPool.setConnectTimeout(1234);
+        assertEquals(1234, HttpClientPool.connectionManagerFor(null).getParams().getConnectionTimeout());
+        HttpClientPool.setConnectTimeout(5678);
+        HttpClientPool.newHttpClient();
+        assertEquals(5678, HttpClientPool.connectionManagerFor(null).getParams().getConnectionTimeout());
+    }
+
+    @Test
+    public void poolIsNotRecreatedAfterTermination() {
+        HttpClientPool.connectionManagerFor(null);
+        HttpClientPool.terminate();
+        try {
+            HttpClientPool.connectionManagerFor(null);
+            fail("a pool was opened after termination");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, HttpClientPool.getStats().getConnectionsInPool());
+    }
+
+    @Test
+    public void proxyChangeClosesThePreviousPoolOnceItsConnectionsAreReleased() throws Exception {
+        HostConfiguration host = new HostConfiguration();
+        host.setHost("localhost", 80);
+        MultiThreadedHttpConnectionManager first = HttpClientPool.connectionManagerFor(null);
+        HttpConnection inUse = first.getConnectionWithTimeout(host, 0);
+
+        ProxyConfiguration proxy = new ProxyConfiguration("proxy.example.com", 3128);
+        assertNotSame(first, HttpClientPool.connectionManagerFor(proxy));
+        // still open for the post using it
+        first.getConnectionWithTimeout(host, 0).releaseConnection();
+
+        inUse.releaseConnection();
+        HttpClientPool.connectionManagerFor(proxy);
+        try {
+            first.getConnectionWithTimeout(host, 0);
+            fail("the previous pool is still open");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
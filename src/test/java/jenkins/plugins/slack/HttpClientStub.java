@@ -4,15 +4,25 @@ import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.HttpStatus;
 
+import java.io.IOException;
+
 public class HttpClientStub extends HttpClient {
 
     private int numberOfCallsToExecuteMethod;
     private int httpStatus;
     private boolean failAlternateResponses = false;
+    private int succeedAfter = 0;
+    private IOException exception;
 
     @Override
-    public int executeMethod(HttpMethod httpMethod) {
+    public synchronized int executeMethod(HttpMethod httpMethod) throws IOException {
         numberOfCallsToExecuteMethod++;
+        if (exception != null) {
+            throw exception;
+        }
+        if (succeedAfter > 0 && numberOfCallsToExecuteMethod >= succeedAfter) {
+            return HttpStatus.SC_OK;
+        }
         if (failAlternateResponses && (numberOfCallsToExecuteMethod % 2 == 0)) {
             return HttpStatus.SC_NOT_FOUND;
         } else {
@@ -20,7 +30,7 @@ public class HttpClientStub extends HttpClient {
         }
     }
 
-    public int getNumberOfCallsToExecuteMethod() {
+    public synchronized int getNumberOfCallsToExecuteMethod() {
         return numberOfCallsToExecuteMethod;
     }
 
@@ -31,4 +41,12 @@ public class HttpClientStub extends HttpClient {
     public void setFailAlternateResponses(boolean failAlternateResponses) {
         this.failAlternateResponses = failAlternateResponses;
     }
+
+    public void setSucceedAfter(int succeedAfter) {
+        this.succeedAfter = succeedAfter;
+    }
+
+    public void setException(IOException exception) {
+        this.exception = exception;
+    }
 }
@@ -0,0 +1,103 @@
+package jenkins.plugins.slack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the way messages used to be built, with a {@link StringBuffer} and chained {@link String#replace}
+ * calls, with the single-pass escaper of {@link ActiveNotifier.MessageBuilder}.
+ *
+ * Not run by the build; run {@link #main(String[])} from the test classpath, after {@code mvn test-compile}.
+ * The GC profiler reports the bytes allocated per message as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBuilderBenchmark {
+
+    /** a status message with a short custom message, or a commit list from a huge merge */
+    @Param({"typical", "large"})
+    public String size;
+
+    private String project;
+    private String build;
+    private String url;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        project = "folder » my-project <release>";
+        build = "#1234";
+        url = "https://jenkins.example.com/job/folder/job/my-project/1234/";
+        StringBuilder text = new StringBuilder();
+        int lines = "large".equals(size) ? 5000 : 3;
+        for (int i = 0; i < lines; i++) {
+            text.append("- Fix the <b>handling</b> of A & B in module ").append(i).append(" [author]\n");
+        }
+        this.text = text.toString();
+    }
+
+    @Benchmark
+    public String chainedReplace() {
+        StringBuffer message = new StringBuffer();
+        message.append(replace(project));
+        message.append(" - ");
+        message.append(replace(build));
+        message.append(" ");
+        message.append(replace("Back to normal"));
+        message.append(" after ");
+        message.append("12 min");
+        message.append(" (<").append(url).append("|Open>)");
+        message.append("\n");
+        message.append(replace(text));
+        return message.toString();
+    }
+
+    @Benchmark
+    public String singlePass() {
+        StringBuilder message = new StringBuilder(256);
+        ActiveNotifier.MessageBuilder.escape(project, message);
+        message.append(" - ");
+        ActiveNotifier.MessageBuilder.escape(build, message);
+        message.append(' ');
+        ActiveNotifier.MessageBuilder.escape("Back to normal", message);
+        message.append(" after ");
+        message.append("12 min");
+        message.append(" (<").append(url).append("|Open>)");
+        message.append('\n');
+        ActiveNotifier.MessageBuilder.escape(text, message);
+        return message.toString();
+    }
+
+    private static String replace(String string) {
+        string = string.replace("&", "&amp;");
+        string = string.replace("<", "&lt;");
+        string = string.replace(">", "&gt;");
+        return string;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MessageBuilderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
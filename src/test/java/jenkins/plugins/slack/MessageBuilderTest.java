@@ -0,0 +1,31 @@
+package jenkins.plugins.slack;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MessageBuilderTest {
+
+    @Test
+    public void specialCharactersAreEscaped() {
+        assertEquals("&lt;b&gt;A &amp; B&lt;/b&gt;", ActiveNotifier.MessageBuilder.escapeText("<b>A & B</b>"));
+        assertEquals("&amp;amp;", ActiveNotifier.MessageBuilder.escapeText("&amp;"));
+        assertEquals("&gt;&gt;", ActiveNotifier.MessageBuilder.escapeText(">>"));
+    }
+
+    @Test
+    public void stringWithNothingToEscapeIsReturnedAsIs() {
+        String plain = "Back to normal after 12 min";
+        assertSame(plain, ActiveNotifier.MessageBuilder.escapeText(plain));
+        assertEquals("", ActiveNotifier.MessageBuilder.escapeText(""));
+    }
+
+    @Test
+    public void escapedTextIsAppendedToTheBuilder() {
+        StringBuilder message = new StringBuilder("job - ");
+        ActiveNotifier.MessageBuilder.escape("a<b", message);
+        ActiveNotifier.MessageBuilder.escape(" & c", message);
+        assertEquals("job - a&lt;b &amp; c", message.toString());
+    }
+}
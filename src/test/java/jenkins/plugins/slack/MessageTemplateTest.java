@@ -0,0 +1,57 @@
+package jenkins.plugins.slack;
+
+import hudson.Util;
+import hudson.util.VariableResolver;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class MessageTemplateTest {
+
+    private final Map<String, String> values = new HashMap<String, String>();
+    private final VariableResolver<String> variables = new VariableResolver.ByMap<String>(values);
+
+    @Test
+    public void bothReferenceFormsAreResolved() {
+        values.put("BRANCH", "master");
+        values.put("my.var", "dotted");
+        assertEquals("on master (master) dotted",
+                MessageTemplate.compile("on $BRANCH (${BRANCH}) ${my.var}").render(variables));
+    }
+
+    @Test
+    public void unknownReferencesAreKept() {
+        assertEquals("$UNKNOWN ${ALSO_UNKNOWN}", MessageTemplate.compile("$UNKNOWN ${ALSO_UNKNOWN}").render(variables));
+    }
+
+    @Test
+    public void dollarsThatAreNotReferencesAreKept() {
+        assertEquals("costs $ 5, ${not closed, $", MessageTemplate.compile("costs $ 5, ${not closed, $").render(variables));
+        assertEquals("$VAR", MessageTemplate.compile("$$VAR").render(variables));
+    }
+
+    @Test
+    public void variablesAreListed() {
+        assertEquals(Arrays.asList("A", "B"), MessageTemplate.compile("x $A y ${B} $$C").getVariables());
+    }
+
+    @Test
+    public void emptyTemplateRendersNothing() {
+        assertEquals("", MessageTemplate.compile(null).render(variables));
+        assertEquals("", MessageTemplate.compile("").render(variables));
+    }
+
+    @Test
+    public void rendersLikeReplaceMacro() {
+        values.put("A", "1");
+        values.put("B_2", "two");
+        String[] templates = {"$A$B_2", "${A}x", "$A.b", "a$", "$$", "$$$A", "${}", "$-", "plain"};
+        for (String template : templates) {
+            assertEquals(template, Util.replaceMacro(template, variables), MessageTemplate.compile(template).render(variables));
+        }
+    }
+}
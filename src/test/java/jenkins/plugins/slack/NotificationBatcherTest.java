@@ -0,0 +1,112 @@
+package jenkins.plugins.slack;
+
+import jenkins.plugins.slack.PublishResult.Delivery;
+import jenkins.plugins.slack.PublishResult.Outcome;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NotificationBatcherTest {
+
+    @Test
+    public void isolatedNotificationIsSentRightAway() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        Future<Delivery> delivery = NotificationBatcher.add("isolated", SlackPayload.of("first", "good"),
+                Collections.singletonList("1"), sender);
+        assertEquals(Outcome.SUCCESS, delivery.get(1, TimeUnit.SECONDS).getOutcome());
+        assertEquals(1, sender.sent.size());
+    }
+
+    @Test
+    public void burstIsSentAsOnePost() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        NotificationBatcher.add("burst", SlackPayload.of("first", "good"), Collections.singletonList("1"), sender)
+                .get(1, TimeUnit.SECONDS);
+        Future<Delivery> second = NotificationBatcher.add("burst", SlackPayload.of("second", "danger"),
+                Collections.singletonList("2"), sender);
+        Future<Delivery> third = NotificationBatcher.add("burst", SlackPayload.of("third", "warning"),
+                Collections.singletonList("3"), sender);
+
+        assertSame(second.get(NotificationBatcher.WINDOW + 5000, TimeUnit.MILLISECONDS),
+                third.get(1, TimeUnit.SECONDS));
+        assertEquals(2, sender.sent.size());
+        List<SlackPayload.Attachment> batched = sender.sent.get(1).getAttachments();
+        assertEquals(2, batched.size());
+        assertEquals("second", batched.get(0).getText());
+        assertEquals("danger", batched.get(0).getColor());
+        assertEquals("third", batched.get(1).getText());
+        assertEquals("warning", batched.get(1).getColor());
+        assertEquals(2, sender.entryIds.get(1).size());
+    }
+
+    @Test
+    public void fullBatchIsSentWithoutWaiting() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        NotificationBatcher.add("full", SlackPayload.of("first", "good"), Collections.singletonList("0"), sender)
+                .get(1, TimeUnit.SECONDS);
+        Future<Delivery> last = null;
+        for (int i = 1; i <= NotificationBatcher.MAX_ATTACHMENTS; i++) {
+            last = NotificationBatcher.add("full", SlackPayload.of("message " + i, "good"),
+                    Collections.singletonList(String.valueOf(i)), sender);
+        }
+        last.get(NotificationBatcher.WINDOW / 2, TimeUnit.MILLISECONDS);
+        assertEquals(NotificationBatcher.MAX_ATTACHMENTS, sender.sent.get(1).getAttachments().size());
+    }
+
+    @Test
+    public void batchIsFullOnceBothCopiesOfItsTextReachTheMaximumLength() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        NotificationBatcher.add("long", SlackPayload.of("first", "good"), Collections.singletonList("0"), sender)
+                .get(1, TimeUnit.SECONDS);
+        // the text of each is sent twice, as the fallback and as the field value
+        String half = StringUtils.repeat("x", NotificationBatcher.MAX_LENGTH / 4);
+        NotificationBatcher.add("long", SlackPayload.of(half, "good"), Collections.singletonList("1"), sender);
+        NotificationBatcher.add("long", SlackPayload.of(half, "good"), Collections.singletonList("2"), sender)
+                .get(NotificationBatcher.WINDOW / 2, TimeUnit.MILLISECONDS);
+        assertEquals(2, sender.sent.get(1).getAttachments().size());
+    }
+
+    @Test
+    public void quietRoomsAreForgotten() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        NotificationBatcher.add("quiet", SlackPayload.of("a", "good"), Collections.<String>emptyList(), sender)
+                .get(1, TimeUnit.SECONDS);
+        assertTrue(NotificationBatcher.isTracked("quiet"));
+        Thread.sleep(NotificationBatcher.WINDOW + 100);
+        NotificationBatcher.add("busy", SlackPayload.of("b", "good"), Collections.<String>emptyList(), sender)
+                .get(1, TimeUnit.SECONDS);
+        assertFalse(NotificationBatcher.isTracked("quiet"));
+        assertTrue(NotificationBatcher.isTracked("busy"));
+    }
+
+    @Test
+    public void roomsAreBatchedSeparately() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        NotificationBatcher.add("room-a", SlackPayload.of("a", "good"), Collections.<String>emptyList(), sender)
+                .get(1, TimeUnit.SECONDS);
+        NotificationBatcher.add("room-b", SlackPayload.of("b", "good"), Collections.<String>emptyList(), sender)
+                .get(1, TimeUnit.SECONDS);
+        assertEquals(2, sender.sent.size());
+    }
+
+    private static final class RecordingSender implements NotificationBatcher.Sender {
+        private final List<SlackPayload> sent = Collections.synchronizedList(new ArrayList<SlackPayload>());
+        private final List<List<String>> entryIds = Collections.synchronizedList(new ArrayList<List<String>>());
+
+        public Delivery send(SlackPayload payload, List<String> ids) {
+            sent.add(payload);
+            entryIds.add(new ArrayList<String>(ids));
+            return new Delivery("team", "#room", Outcome.SUCCESS, 200, null);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package jenkins.plugins.slack;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class NotificationDispatcherTest {
+
+    private static final Callable<String> TASK = new Callable<String>() {
+        public String call() {
+            return "sent";
+        }
+    };
+
+    @After
+    public void tearDown() {
+        NotificationDispatcher.start();
+    }
+
+    @Test
+    public void notificationsAreRejectedOnceStopped() throws Exception {
+        assertEquals("sent", NotificationDispatcher.submit(TASK).get());
+        NotificationDispatcher.shutdown();
+        try {
+            NotificationDispatcher.submit(TASK);
+            fail("the dispatcher was started again after it stopped");
+        } catch (RejectedExecutionException expected) {
+        }
+    }
+
+    @Test
+    public void notificationsAreAcceptedAgainOnceRestarted() throws Exception {
+        NotificationDispatcher.shutdown();
+        NotificationDispatcher.start();
+        assertEquals("sent", NotificationDispatcher.submit(TASK).get());
+    }
+}
@@ -0,0 +1,74 @@
+package jenkins.plugins.slack;
+
+import hudson.model.AbstractProject;
+import hudson.util.DescribableList;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+public class ProjectNotifiersTest {
+
+    @After
+    public void tearDown() {
+        ProjectNotifiers.invalidateAll();
+    }
+
+    @Test
+    public void publishersAreScannedOncePerProject() {
+        SlackNotifier notifier = mock(SlackNotifier.class);
+        AbstractProject project = project("folder/job", notifier);
+        assertSame(notifier, ProjectNotifiers.get(project));
+        assertSame(notifier, ProjectNotifiers.get(project));
+        verify(project.getPublishersList(), times(1)).get(SlackNotifier.class);
+    }
+
+    @Test
+    public void projectsWithoutSlackAreCachedToo() {
+        AbstractProject project = project("no-slack", null);
+        assertNull(ProjectNotifiers.get(project));
+        assertNull(ProjectNotifiers.get(project));
+        verify(project.getPublishersList(), times(1)).get(SlackNotifier.class);
+    }
+
+    @Test
+    public void savedProjectIsLookedUpAgain() {
+        AbstractProject project = project("job", null);
+        ProjectNotifiers.get(project);
+        new ProjectNotifiers.ConfigListener().onChange(project, null);
+        ProjectNotifiers.get(project);
+        verify(project.getPublishersList(), times(2)).get(SlackNotifier.class);
+    }
+
+    @Test
+    public void reloadedProjectIsLookedUpAgain() {
+        ProjectNotifiers.get(project("job", null));
+        SlackNotifier notifier = mock(SlackNotifier.class);
+        assertSame(notifier, ProjectNotifiers.get(project("job", notifier)));
+    }
+
+    @Test
+    public void deletedFolderForgetsItsJobs() {
+        ProjectNotifiers.get(project("folder/a", null));
+        ProjectNotifiers.get(project("folder/b", null));
+        ProjectNotifiers.get(project("folder2/c", null));
+        ProjectNotifiers.invalidateTree("folder");
+        assertEquals(1, ProjectNotifiers.size());
+    }
+
+    private static AbstractProject project(String fullName, SlackNotifier notifier) {
+        AbstractProject project = mock(AbstractProject.class);
+        DescribableList publishers = mock(DescribableList.class);
+        when(project.getFullName()).thenReturn(fullName);
+        when(project.getPublishersList()).thenReturn(publishers);
+        when(publishers.get(SlackNotifier.class)).thenReturn(notifier);
+        return project;
+    }
+}
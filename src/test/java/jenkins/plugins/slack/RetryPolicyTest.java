@@ -0,0 +1,78 @@
+package jenkins.plugins.slack;
+
+import org.apache.commons.httpclient.util.DateUtil;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(5, 100, 1000);
+
+    @Test
+    public void throttlingAndServerErrorsAreRetryable() {
+        assertTrue(policy.isRetryable(429));
+        assertTrue(policy.isRetryable(500));
+        assertTrue(policy.isRetryable(503));
+        assertTrue(policy.isRetryable(new SocketTimeoutException()));
+        assertTrue(policy.isRetryable(new IOException()));
+    }
+
+    @Test
+    public void clientErrorsAreFatal() {
+        assertFalse(policy.isRetryable(400));
+        assertFalse(policy.isRetryable(404));
+        assertFalse(policy.isRetryable(new UnknownHostException()));
+        assertFalse(policy.isRetryable(new IllegalArgumentException()));
+    }
+
+    @Test
+    public void backoffGrowsAndIsCapped() {
+        for (int i = 0; i < 20; i++) {
+            long first = policy.delayBeforeRetry(1, 0);
+            assertTrue(first >= 50 && first <= 100);
+            long third = policy.delayBeforeRetry(3, 0);
+            assertTrue(third >= 200 && third <= 400);
+            long capped = policy.delayBeforeRetry(10, 0);
+            assertTrue(capped >= 500 && capped <= 1000);
+        }
+    }
+
+    @Test
+    public void retryAfterIsHonored() {
+        assertEquals(800, policy.delayBeforeRetry(1, 800));
+        assertEquals(-1, policy.delayBeforeRetry(1, 5000));
+    }
+
+    @Test
+    public void retryAfterHeaderIsParsed() {
+        assertEquals(0, RetryPolicy.parseRetryAfter(null));
+        assertEquals(0, RetryPolicy.parseRetryAfter("soon"));
+        assertEquals(30000, RetryPolicy.parseRetryAfter(" 30 "));
+        long fromDate = RetryPolicy.parseRetryAfter(DateUtil.formatDate(new Date(System.currentTimeMillis() + 60000)));
+        assertTrue(fromDate > 50000 && fromDate <= 60000);
+    }
+
+    @Test
+    public void rateLimiterAllowsBurstThenSpacesPermits() {
+        RateLimiter limiter = new RateLimiter(10, 2);
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        long wait = limiter.reserve();
+        assertTrue(wait > 0 && wait <= 100);
+    }
+
+    @Test
+    public void everyChannelOfATeamHasItsOwnRateLimiter() {
+        assertTrue(RateLimiter.forChannel("team", "#a") == RateLimiter.forChannel("team", "#a"));
+        assertFalse(RateLimiter.forChannel("team", "#a") == RateLimiter.forChannel("team", "#b"));
+        assertFalse(RateLimiter.forChannel("team", "#a") == RateLimiter.forTeam("team"));
+    }
+}
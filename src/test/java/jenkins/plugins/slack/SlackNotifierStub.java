@@ -15,6 +15,7 @@ public class SlackNotifierStub extends SlackNotifier {
     public static class DescriptorImplStub extends SlackNotifier.DescriptorImpl {
 
         private SlackService slackService;
+        private boolean compoundMessage;
 
         @Override
         public synchronized void load() {
@@ -28,5 +29,14 @@ public class SlackNotifierStub extends SlackNotifier {
         public void setSlackService(SlackService slackService) {
             this.slackService = slackService;
         }
+
+        @Override
+        public boolean isCompoundMessage() {
+            return compoundMessage;
+        }
+
+        public void setCompoundMessage(boolean compoundMessage) {
+            this.compoundMessage = compoundMessage;
+        }
     }
 }
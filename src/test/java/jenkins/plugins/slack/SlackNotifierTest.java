@@ -8,8 +8,14 @@ import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 @RunWith(Parameterized.class)
 public class SlackNotifierTest extends TestCase {
@@ -58,6 +64,7 @@ public class SlackNotifierTest extends TestCase {
     public static class SlackServiceStub implements SlackService {
 
         private boolean response;
+        private final List<SlackPayload> published = new ArrayList<SlackPayload>();
 
         public boolean publish(String message) {
             return response;
@@ -67,8 +74,40 @@ public class SlackNotifierTest extends TestCase {
             return response;
         }
 
+        public PublishResult publishToAll(String message, String color) {
+            return publishToAll(SlackPayload.of(message, color));
+        }
+
+        public Future<PublishResult> publishAsync(final String message, final String color) {
+            return publishAsync(SlackPayload.of(message, color));
+        }
+
+        public PublishResult publishToAll(SlackPayload payload) {
+            published.add(payload);
+            PublishResult.Outcome outcome = response ? PublishResult.Outcome.SUCCESS : PublishResult.Outcome.HTTP_FAILURE;
+            return new PublishResult(Collections.singletonList(
+                    new PublishResult.Delivery("teamDomain", "room", outcome, 0, null)));
+        }
+
+        public Future<PublishResult> publishAsync(final SlackPayload payload) {
+            FutureTask<PublishResult> result = new FutureTask<PublishResult>(new Callable<PublishResult>() {
+                public PublishResult call() {
+                    return publishToAll(payload);
+                }
+            });
+            result.run();
+            return result;
+        }
+
         public void setResponse(boolean response) {
             this.response = response;
         }
+
+        /**
+         * Every payload posted, in order.
+         */
+        public List<SlackPayload> getPublished() {
+            return published;
+        }
     }
 }
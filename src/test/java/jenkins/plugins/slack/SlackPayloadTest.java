@@ -0,0 +1,55 @@
+package jenkins.plugins.slack;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SlackPayloadTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void singleAttachmentPayloadHasTheExpectedShape() throws Exception {
+        JsonNode json = mapper.readTree(SlackPayload.of("message", "good").forChannel("#room1"));
+        assertEquals("#room1", json.get("channel").asText());
+        JsonNode attachment = json.get("attachments").get(0);
+        assertEquals("message", attachment.get("fallback").asText());
+        assertEquals("good", attachment.get("color").asText());
+        assertEquals("message", attachment.get("fields").get(0).get("value").asText());
+        assertFalse(attachment.get("fields").get(0).get("short").asBoolean());
+        assertEquals(3, attachment.get("mrkdwn_in").size());
+    }
+
+    @Test
+    public void channelIsTheOnlyDifferenceBetweenRooms() throws Exception {
+        SlackPayload payload = SlackPayload.of("message", "good");
+        JsonNode room1 = mapper.readTree(payload.forChannel("#room1"));
+        JsonNode room2 = mapper.readTree(payload.forChannel("#room2"));
+        assertEquals("#room2", room2.get("channel").asText());
+        assertEquals(room1.get("attachments"), room2.get("attachments"));
+    }
+
+    @Test
+    public void specialCharactersAreEscaped() throws Exception {
+        String message = "\"quoted\"\n\ttabbed \\ <link|Open> é";
+        JsonNode json = mapper.readTree(SlackPayload.of(message, "danger").forChannel("#we\"ird"));
+        assertEquals("#we\"ird", json.get("channel").asText());
+        assertEquals(message, json.get("attachments").get(0).get("fallback").asText());
+    }
+
+    @Test
+    public void attachmentsKeepTheirOrderAndColor() throws Exception {
+        SlackPayload payload = new SlackPayload(Arrays.asList(
+                new SlackPayload.Attachment("first", "good"),
+                new SlackPayload.Attachment("second", "danger")));
+        JsonNode attachments = mapper.readTree(payload.forChannel("#room")).get("attachments");
+        assertEquals(2, attachments.size());
+        assertEquals("first", attachments.get(0).get("fallback").asText());
+        assertEquals("danger", attachments.get(1).get("color").asText());
+    }
+}
@@ -3,16 +3,41 @@ package jenkins.plugins.slack;
 public class StandardSlackServiceStub extends StandardSlackService {
 
     private HttpClientStub httpClientStub;
+    private CircuitBreaker circuitBreaker = new CircuitBreaker("stub", CircuitBreaker.WINDOW_SIZE,
+            CircuitBreaker.MINIMUM_CALLS, CircuitBreaker.FAILURE_RATE_THRESHOLD, CircuitBreaker.OPEN_DURATION);
 
     public StandardSlackServiceStub(String teamDomain, String token, String roomId) {
         super(teamDomain, token, roomId);
     }
 
+    public StandardSlackServiceStub(String teamDomain, String token, String roomId, Timeouts timeouts) {
+        super(teamDomain, token, roomId, timeouts);
+    }
+
     @Override
     public HttpClientStub getHttpClient() {
         return httpClientStub;
     }
 
+    @Override
+    protected RateLimiter getRateLimiter(String teamDomain) {
+        return RateLimiter.UNLIMITED;
+    }
+
+    @Override
+    protected RateLimiter getRateLimiter(String teamDomain, String roomId) {
+        return RateLimiter.UNLIMITED;
+    }
+
+    @Override
+    protected CircuitBreaker getCircuitBreaker(String teamDomain) {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
     public void setHttpClient(HttpClientStub httpClientStub) {
         this.httpClientStub = httpClientStub;
     }
@@ -3,6 +3,10 @@ package jenkins.plugins.slack;
 import org.apache.http.HttpStatus;
 import org.junit.Test;
 
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -55,6 +59,20 @@ public class StandardSlackServiceTest {
         assertEquals(3, service.getHttpClient().getNumberOfCallsToExecuteMethod());
     }
 
+    @Test
+    public void compoundMessageIsSentAsASinglePostPerRoom() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1,#room2");
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_OK);
+        service.setHttpClient(httpClientStub);
+        SlackPayload payload = new SlackPayload(Arrays.asList(
+                new SlackPayload.Attachment("status", "good"),
+                new SlackPayload.Attachment("tests", "good"),
+                new SlackPayload.Attachment("commits", "good")));
+        assertTrue(service.publishToAll(payload).isSuccess());
+        assertEquals(2, service.getHttpClient().getNumberOfCallsToExecuteMethod());
+    }
+
     @Test
     public void successfulPublishToASingleRoomReturnsTrue() {
         StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1");
@@ -100,4 +118,151 @@ public class StandardSlackServiceTest {
         service.setHttpClient(httpClientStub);
         assertTrue(service.publish("message"));
     }
+
+    @Test
+    public void publishAsyncReturnsResultOfPublish() throws Exception {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1,#room2");
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_OK);
+        service.setHttpClient(httpClientStub);
+        assertTrue(service.publishAsync("message", "good").get(10, TimeUnit.SECONDS).isSuccess());
+        assertEquals(2, service.getHttpClient().getNumberOfCallsToExecuteMethod());
+    }
+
+    @Test
+    public void publishToAllReportsEveryRoom() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1,#room2,#room3");
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setFailAlternateResponses(true);
+        httpClientStub.setHttpStatus(HttpStatus.SC_OK);
+        service.setHttpClient(httpClientStub);
+        PublishResult result = service.publishToAll("message", "good");
+        assertEquals(3, result.getDeliveries().size());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(HttpStatus.SC_NOT_FOUND, result.getFailures().get(0).getStatusCode());
+        assertEquals(PublishResult.Outcome.HTTP_FAILURE, result.getFailures().get(0).getOutcome());
+    }
+
+    @Test
+    public void publishToMultipleRoomsDuringShutdownFailsEveryRoom() throws Exception {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1,#room2");
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_OK);
+        service.setHttpClient(httpClientStub);
+        NotificationDispatcher.shutdown();
+        try {
+            PublishResult result = service.publishToAll("message", "good");
+            assertEquals(2, result.getFailures().size());
+            assertEquals(PublishResult.Outcome.ERROR, result.getFailures().get(0).getOutcome());
+            assertEquals(0, service.getHttpClient().getNumberOfCallsToExecuteMethod());
+        } finally {
+            NotificationDispatcher.start();
+        }
+    }
+
+    @Test
+    public void publishToMultipleTeamsSendsAMessageToEveryRoomOfEveryTeam() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("team1,team2", "token1,token2", "#room1,#room2");
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_OK);
+        service.setHttpClient(httpClientStub);
+        PublishResult result = service.publishToAll("message", "good");
+        assertTrue(result.isSuccess());
+        assertEquals(4, service.getHttpClient().getNumberOfCallsToExecuteMethod());
+        assertEquals("team1", result.getDeliveries().get(0).getTeamDomain());
+        assertEquals("#room2", result.getDeliveries().get(3).getRoom());
+        assertEquals("team2", result.getDeliveries().get(3).getTeamDomain());
+    }
+
+    @Test
+    public void throttledPublishIsRetried() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1");
+        service.setRetryPolicy(new RetryPolicy(3, 1, 10));
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setHttpStatus(429);
+        service.setHttpClient(httpClientStub);
+        assertFalse(service.publish("message"));
+        assertEquals(3, service.getHttpClient().getNumberOfCallsToExecuteMethod());
+    }
+
+    @Test
+    public void fatalFailureIsNotRetried() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1");
+        service.setRetryPolicy(new RetryPolicy(3, 1, 10));
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_NOT_FOUND);
+        service.setHttpClient(httpClientStub);
+        assertFalse(service.publish("message"));
+        assertEquals(1, service.getHttpClient().getNumberOfCallsToExecuteMethod());
+    }
+
+    @Test
+    public void publishSucceedsOnceServerRecovers() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1");
+        service.setRetryPolicy(new RetryPolicy(3, 1, 10));
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        httpClientStub.setSucceedAfter(2);
+        service.setHttpClient(httpClientStub);
+        assertTrue(service.publish("message"));
+        assertEquals(2, service.getHttpClient().getNumberOfCallsToExecuteMethod());
+    }
+
+    @Test
+    public void readTimeoutIsReportedAsTimeout() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1");
+        service.setRetryPolicy(new RetryPolicy(2, 1, 10));
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setException(new SocketTimeoutException("Read timed out"));
+        service.setHttpClient(httpClientStub);
+        PublishResult result = service.publishToAll("message", "good");
+        assertEquals(PublishResult.Outcome.TIMEOUT, result.getDeliveries().get(0).getOutcome());
+        assertEquals(2, service.getHttpClient().getNumberOfCallsToExecuteMethod());
+    }
+
+    @Test
+    public void retriesStopAtTheDeadline() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1",
+                Timeouts.DEFAULT.withDeadline(300));
+        service.setRetryPolicy(new RetryPolicy(10, 200, 1000));
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        service.setHttpClient(httpClientStub);
+        long start = System.currentTimeMillis();
+        PublishResult result = service.publishToAll("message", "good");
+        assertFalse(result.isSuccess());
+        assertTrue(service.getHttpClient().getNumberOfCallsToExecuteMethod() < 10);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void openCircuitFailsFast() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1");
+        service.setRetryPolicy(new RetryPolicy(3, 1, 10));
+        service.setCircuitBreaker(new CircuitBreaker("domain", 2, 2, 50, 60 * 1000L));
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        service.setHttpClient(httpClientStub);
+
+        PublishResult result = service.publishToAll("message", "good");
+        assertEquals(PublishResult.Outcome.CIRCUIT_OPEN, result.getDeliveries().get(0).getOutcome());
+        assertEquals(2, service.getHttpClient().getNumberOfCallsToExecuteMethod());
+
+        result = service.publishToAll("message", "good");
+        assertEquals(PublishResult.Outcome.CIRCUIT_OPEN, result.getDeliveries().get(0).getOutcome());
+        assertEquals(2, service.getHttpClient().getNumberOfCallsToExecuteMethod());
+    }
+
+    @Test
+    public void refusedMessageDoesNotOpenTheCircuit() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("domain", "token", "#room1");
+        CircuitBreaker breaker = new CircuitBreaker("domain", 2, 2, 50, 60 * 1000L);
+        service.setCircuitBreaker(breaker);
+        HttpClientStub httpClientStub = new HttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_NOT_FOUND);
+        service.setHttpClient(httpClientStub);
+        service.publish("message");
+        service.publish("message");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
 }
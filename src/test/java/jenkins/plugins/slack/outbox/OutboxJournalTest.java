@@ -0,0 +1,156 @@
+package jenkins.plugins.slack.outbox;
+
+import jenkins.plugins.slack.SlackPayload;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OutboxJournalTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pendingEntriesSurviveReopening() throws IOException {
+        File dir = folder.newFolder("outbox");
+        OutboxJournal journal = new OutboxJournal(dir, 1024 * 1024, DAY);
+        OutboxEntry entry = entry("#general", System.currentTimeMillis());
+        journal.append(entry);
+        journal.close();
+
+        Collection<OutboxEntry> pending = new OutboxJournal(dir, 1024 * 1024, DAY).pending();
+        assertEquals(1, pending.size());
+        OutboxEntry reloaded = pending.iterator().next();
+        assertEquals(entry.getId(), reloaded.getId());
+        assertEquals("#general", reloaded.getRoom());
+        assertEquals(entry.getPayload().forChannel("#general"), reloaded.getPayload().forChannel("#general"));
+    }
+
+    @Test
+    public void doneEntriesAreNotReloaded() throws IOException {
+        File dir = folder.newFolder("outbox");
+        OutboxJournal journal = new OutboxJournal(dir, 1024 * 1024, DAY);
+        OutboxEntry sent = entry("#general", System.currentTimeMillis());
+        OutboxEntry notSent = entry("#random", System.currentTimeMillis());
+        journal.append(sent);
+        journal.append(notSent);
+        journal.markDone(sent.getId());
+        journal.close();
+
+        assertEquals(ids(notSent), ids(new OutboxJournal(dir, 1024 * 1024, DAY).pending()));
+    }
+
+    @Test
+    public void truncatedRecordIsSkipped() throws IOException {
+        File dir = folder.newFolder("outbox");
+        OutboxJournal journal = new OutboxJournal(dir, 1024 * 1024, DAY);
+        OutboxEntry entry = entry("#general", System.currentTimeMillis());
+        journal.append(entry);
+        journal.close();
+        FileOutputStream out = new FileOutputStream(dir.listFiles()[0], true);
+        out.write("{\"op\":\"pending\",\"entry\":{\"id\":".getBytes("UTF-8"));
+        out.close();
+
+        OutboxJournal reopened = new OutboxJournal(dir, 1024 * 1024, DAY);
+        assertEquals(ids(entry), ids(reopened.pending()));
+
+        // appended after the torn record, not onto it
+        OutboxEntry next = entry("#random", System.currentTimeMillis());
+        reopened.append(next);
+        reopened.close();
+        assertEquals(ids(entry, next), ids(new OutboxJournal(dir, 1024 * 1024, DAY).pending()));
+    }
+
+    @Test
+    public void oldSegmentsAreCompacted() throws IOException {
+        File dir = folder.newFolder("outbox");
+        OutboxJournal journal = new OutboxJournal(dir, 512, DAY);
+        OutboxEntry kept = entry("#kept", System.currentTimeMillis());
+        journal.append(kept);
+        for (int i = 0; i < 50; i++) {
+            OutboxEntry entry = entry("#room" + i, System.currentTimeMillis());
+            journal.append(entry);
+            journal.markDone(entry.getId());
+        }
+        assertTrue(journal.segmentCount() <= 2);
+        assertTrue(dir.list().length <= 2);
+        journal.close();
+
+        assertEquals(ids(kept), ids(new OutboxJournal(dir, 512, DAY).pending()));
+    }
+
+    @Test
+    public void pendingEntriesLargerThanASegmentAreNotCopiedOnEveryRecord() throws IOException {
+        File dir = folder.newFolder("outbox");
+        OutboxJournal journal = new OutboxJournal(dir, 512, DAY);
+        List<OutboxEntry> backlog = new ArrayList<OutboxEntry>();
+        for (int i = 0; i < 20; i++) {
+            OutboxEntry entry = entry("#pending" + i, System.currentTimeMillis());
+            journal.append(entry);
+            backlog.add(entry);
+        }
+        int rotations = journal.rotationCount();
+        for (int i = 0; i < 20; i++) {
+            OutboxEntry entry = entry("#room" + i, System.currentTimeMillis());
+            journal.append(entry);
+            journal.markDone(entry.getId());
+        }
+        // 40 new records: once per 512 bytes of them, rather than on each record
+        assertTrue(journal.rotationCount() - rotations <= 20);
+        assertTrue(journal.segmentCount() <= 2);
+        journal.close();
+
+        assertEquals(ids(backlog.toArray(new OutboxEntry[0])), ids(new OutboxJournal(dir, 512, DAY).pending()));
+    }
+
+    @Test
+    public void expiredEntriesAreDroppedOnCompaction() throws IOException {
+        File dir = folder.newFolder("outbox");
+        OutboxJournal journal = new OutboxJournal(dir, 512, DAY);
+        journal.append(entry("#stale", System.currentTimeMillis() - 2 * DAY));
+        for (int i = 0; i < 50; i++) {
+            OutboxEntry entry = entry("#room" + i, System.currentTimeMillis());
+            journal.append(entry);
+            journal.markDone(entry.getId());
+        }
+        assertEquals(0, journal.pending().size());
+        journal.close();
+    }
+
+    private static OutboxEntry entry(String room, long created) {
+        SlackPayload payload = SlackPayload.of("message for " + room, "good");
+        return new OutboxEntry(room.substring(1) + "-" + created, created, "team", "token", room,
+                payload.getAttachments());
+    }
+
+    private static List<String> ids(OutboxEntry... entries) {
+        List<String> ids = new ArrayList<String>();
+        for (OutboxEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private static List<String> ids(Collection<OutboxEntry> entries) {
+        List<String> ids = new ArrayList<String>();
+        for (OutboxEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+}
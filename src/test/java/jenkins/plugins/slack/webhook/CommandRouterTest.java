@@ -0,0 +1,107 @@
+package jenkins.plugins.slack.webhook;
+
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jenkins.plugins.slack.webhook.exception.CommandRouterException;
+import jenkins.plugins.slack.webhook.exception.RouteNotFoundException;
+import jenkins.plugins.slack.webhook.model.SlackPostData;
+
+
+
+
+public class CommandRouterTest {
+
+    private final CommandContext context = new CommandContext(new SlackPostData(), "jenkins");
+
+    @Test
+    public void commandsAreDispatchedOnTheirFirstWord() throws Exception {
+        RecordingCommand list = new RecordingCommand("list");
+        RecordingCommand run = new RecordingCommand("run");
+        CommandRouter<String> router = new CommandRouter<String>()
+            .addRoute("list", "^list projects", "list projects", "", list)
+            .addRoute("run", "^run (.+)", "run <project_name>", "", run);
+
+        assertEquals("run", router.route(context, "run list projects"));
+        assertEquals(Arrays.asList("list projects"), run.args);
+        assertEquals(0, list.args.size());
+    }
+
+    @Test
+    public void routesSharingAKeywordAreTriedInOrder() throws Exception {
+        CommandRouter<String> router = new CommandRouter<String>()
+            .addRoute("get", "^get (\\S+) log", "get <project> log", "", new RecordingCommand("log"))
+            .addRoute("get", "^get (\\S+) #([0-9]+) log", "get <project> #<n> log", "", new RecordingCommand("build log"));
+
+        assertEquals("log", router.route(context, "get p log"));
+        assertEquals("build log", router.route(context, "get p #2 log"));
+    }
+
+    @Test
+    public void theContextIsPassedToTheCommand() throws Exception {
+        RecordingCommand list = new RecordingCommand("list");
+        CommandRouter<String> router = new CommandRouter<String>()
+            .addRoute("list", "^list projects", "list projects", "", list);
+
+        router.route(context, "list projects");
+        assertSame(context, list.context);
+    }
+
+    @Test
+    public void unknownCommandsAreNotFound() throws Exception {
+        CommandRouter<String> router = new CommandRouter<String>()
+            .addRoute("list", "^list projects", "list projects", "", new RecordingCommand("list"));
+
+        for (String command : new String[] { "build", "list jobs", "" }) {
+            try {
+                router.route(context, command);
+                fail(command);
+            } catch (RouteNotFoundException e) {
+                assertEquals(command, e.getRouteCommand());
+            }
+        }
+    }
+
+    @Test(expected = CommandRouterException.class)
+    public void failingCommandsAreReported() throws Exception {
+        CommandRouter<String> router = new CommandRouter<String>()
+            .addRoute("fail", "^fail", "fail", "", new RouterCommand<String>() {
+                public String execute(CommandContext context, String... args) {
+                    throw new IllegalStateException("failed");
+                }
+            });
+
+        router.route(context, "fail");
+    }
+
+    @Test
+    public void keywordIsTheFirstWord() {
+        assertEquals("get", CommandRouter.keyword("get my job #1 log"));
+        assertEquals("list", CommandRouter.keyword("  list\tprojects"));
+        assertEquals("", CommandRouter.keyword(""));
+    }
+
+    private static class RecordingCommand implements RouterCommand<String> {
+        private final String result;
+        private final List<String> args = new ArrayList<String>();
+        private CommandContext context;
+
+        RecordingCommand(String result) {
+            this.result = result;
+        }
+
+        public String execute(CommandContext context, String... args) {
+            this.context = context;
+            this.args.addAll(Arrays.asList(args));
+            return result;
+        }
+    }
+}
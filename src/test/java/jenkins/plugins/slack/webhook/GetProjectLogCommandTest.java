@@ -0,0 +1,45 @@
+package jenkins.plugins.slack.webhook;
+
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+
+
+public class GetProjectLogCommandTest {
+
+    private final Pattern route = Pattern.compile(new GetProjectLogCommand().getRegex());
+
+    @Test
+    public void lineCountAndRangeAreOptional() {
+        assertGroups("get my job #12 log", "my job", "12", null, null, null);
+        assertGroups("get my job #12 log 100", "my job", "12", "100", null, null);
+        assertGroups("get my job #12 log lines 2000-2100", "my job", "12", null, "2000", "2100");
+        assertGroups("get a #b #3 log lines 1 - 5", "a #b", "3", null, "1", "5");
+    }
+
+    @Test
+    public void malformedRangesDoNotMatch() {
+        assertFalse(route.matcher("get job #1 log lines 5").matches());
+        assertFalse(route.matcher("get job #1 log lines -5").matches());
+    }
+
+    private void assertGroups(String command, String... groups) {
+        Matcher matcher = route.matcher(command);
+        assertTrue(command, matcher.matches());
+        for (int i = 0; i < groups.length; i++) {
+            if (groups[i] == null)
+                assertNull(command, matcher.group(i + 1));
+            else
+                assertEquals(command, groups[i], matcher.group(i + 1));
+        }
+    }
+}
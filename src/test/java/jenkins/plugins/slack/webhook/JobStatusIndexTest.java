@@ -0,0 +1,81 @@
+package jenkins.plugins.slack.webhook;
+
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jenkins.plugins.slack.webhook.JobStatusIndex.JobStatus;
+
+
+
+
+public class JobStatusIndexTest {
+
+    @Test
+    public void projectsAreInTreeOrder() {
+        List<String> names = new ArrayList<String>(Arrays.asList("b", "a-b", "a/x", "a/y/z", "a/y", "C", "a"));
+        Collections.sort(names, JobStatusIndex.TREE_ORDER);
+        assertEquals(Arrays.asList("a", "a/x", "a/y", "a/y/z", "a-b", "b", "C"), names);
+    }
+
+    @Test
+    public void eventsAreIgnoredUntilTheIndexIsRead() {
+        JobStatusIndex index = new JobStatusIndex(null);
+        index.update(status("job", 1, "SUCCESS"));
+        assertEquals(0, index.size());
+
+        assertTrue(index.getStatuses().isEmpty());
+        index.update(status("job", 1, "SUCCESS"));
+        assertEquals(1, index.getStatuses().size());
+    }
+
+    @Test
+    public void anOlderStatusDoesNotHideALaterBuild() {
+        JobStatusIndex index = new JobStatusIndex(null);
+        index.getStatuses();
+        index.update(status("job", 3, "FAILURE"));
+        index.update(new JobStatus("job", "Renamed", false, 2, "SUCCESS"));
+
+        JobStatus job = index.getStatuses().get(0);
+        assertEquals("Renamed", job.getDisplayName());
+        assertEquals(false, job.isBuildable());
+        assertEquals(3, job.getLastBuildNumber());
+        assertEquals("FAILURE", job.getStatus());
+    }
+
+    @Test
+    public void theEndOfABuildWinsOverItsStart() {
+        JobStatusIndex index = new JobStatusIndex(null);
+        index.getStatuses();
+        index.update(status("job", 3, "SUCCESS"));
+        index.update(status("job", 3, JobStatus.BUILDING));
+        assertEquals("SUCCESS", index.getStatuses().get(0).getStatus());
+    }
+
+    @Test
+    public void removingAFolderRemovesItsContent() {
+        JobStatusIndex index = new JobStatusIndex(null);
+        index.getStatuses();
+        for (String name : new String[] { "a", "a/x", "a/y/z", "a-b", "ab" }) {
+            index.update(status(name, 0, null));
+        }
+        index.remove("a");
+
+        List<String> names = new ArrayList<String>();
+        for (JobStatus status : index.getStatuses()) {
+            names.add(status.getFullName());
+        }
+        assertEquals(Arrays.asList("a-b", "ab"), names);
+    }
+
+    private static JobStatus status(String fullName, int number, String status) {
+        return new JobStatus(fullName, fullName, true, number, status);
+    }
+}
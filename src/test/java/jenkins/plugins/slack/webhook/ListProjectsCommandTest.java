@@ -0,0 +1,117 @@
+package jenkins.plugins.slack.webhook;
+
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jenkins.plugins.slack.webhook.JobStatusIndex.JobStatus;
+import jenkins.plugins.slack.webhook.ListProjectsCommand.ProjectList;
+
+
+
+
+public class ListProjectsCommandTest {
+
+    private final Pattern route = Pattern.compile(new ListProjectsCommand().getRegex());
+
+    @Test
+    public void filterAndPageAreOptional() {
+        assertArgs("list projects", null, null);
+        assertArgs("list projects team/*", "team/*", null);
+        assertArgs("list projects page 2", null, "2");
+        assertArgs("list projects /a b/ page 3", "/a b/", "3");
+        assertArgs("list projects page", "page", null);
+    }
+
+    @Test
+    public void fewProjectsAreListedOnALineEach() {
+        ProjectList list = new ProjectList(jobs(2), ProjectFilter.ALL, 50, "jenkins");
+        assertEquals(1, list.getPages());
+        assertEquals("*Projects:*\n"
+            + ">*job-0*\n>*Last Build:* #TBD\n>*Status:* TBD\n\n\n"
+            + ">*job-1*\n>*Last Build:* #1\n>*Status:* SUCCESS\n\n\n", list.render(1, list.more(1)));
+    }
+
+    @Test
+    public void noProjectsAreFound() {
+        ProjectList list = new ProjectList(Collections.<JobStatus>emptyList(), ProjectFilter.ALL, 50, "jenkins");
+        assertEquals("*Projects:*\n>_No projects found_", list.render(1, list.more(1)));
+    }
+
+    @Test
+    public void pagesTellHowToGetTheNextOne() {
+        ProjectList list = new ProjectList(jobs(25), ProjectFilter.parse("job-*"), 10, "jenkins");
+        assertEquals(3, list.getPages());
+
+        String first = list.render(1, list.more(1));
+        assertTrue(first.startsWith("*Projects:*\n>*job-0* :: *Last Build:* #TBD :: *Status:* TBD\n\n"));
+        assertTrue(first.endsWith(">*job-9* :: *Last Build:* #1 :: *Status:* SUCCESS\n\n"
+            + "_Page 1 of 3, `jenkins list projects job-* page 2` for more_"));
+
+        String last = list.render(3, list.more(3));
+        assertTrue(last.startsWith("*Projects, page 3 of 3:*\n>*job-20*"));
+        assertTrue(last.endsWith(">*job-24* :: *Last Build:* #1 :: *Status:* SUCCESS\n\n"));
+
+        assertEquals("*Projects, page 4 of 3:*\n>_There are only 3 pages_", list.render(4, list.more(4)));
+    }
+
+    @Test
+    public void onlyBuildableProjectsAreListed() {
+        List<JobStatus> jobs = new ArrayList<JobStatus>();
+        jobs.add(new JobStatus("disabled", "disabled", false, 3, "FAILURE"));
+        ProjectList list = new ProjectList(jobs, ProjectFilter.ALL, 50, "jenkins");
+        assertEquals("*Projects:*\n", list.render(1, list.more(1)));
+    }
+
+    @Test
+    public void followUpsAreRenderedWhenPosted() {
+        ProjectList list = new ProjectList(jobs(25), ProjectFilter.ALL, 10, "jenkins");
+        String second = list.message(2, true).render().getText();
+        assertTrue(second.startsWith("*Projects, page 2 of 3:*\n>*job-10*"));
+        assertTrue(second.endsWith("_Page 2 of 3, `jenkins list projects page 3` for more_"));
+        assertFalse(list.message(3, true).render().getText().contains("for more"));
+    }
+
+    @Test
+    public void onlySlackResponseUrlsArePostedTo() {
+        assertTrue(ResponseUrlPoster.isValid("https://hooks.slack.com/commands/T0/1/abc"));
+        assertFalse(ResponseUrlPoster.isValid("http://hooks.slack.com/commands/T0/1/abc"));
+        assertFalse(ResponseUrlPoster.isValid("https://hooks.slack.com.example.org/x"));
+        assertFalse(ResponseUrlPoster.isValid("https://localhost:8080/x"));
+        assertFalse(ResponseUrlPoster.isValid(null));
+    }
+
+    private void assertArgs(String command, String filter, String page) {
+        Matcher matcher = route.matcher(command);
+        assertTrue(command, matcher.matches());
+        if (filter == null)
+            assertNull(matcher.group(1));
+        else
+            assertEquals(filter, matcher.group(1));
+        if (page == null)
+            assertNull(matcher.group(2));
+        else
+            assertEquals(page, matcher.group(2));
+    }
+
+    /** jobs numbered from 0, all but the first built once */
+    private static List<JobStatus> jobs(int count) {
+        List<JobStatus> jobs = new ArrayList<JobStatus>();
+        for (int i = 0; i < count; i++) {
+            String name = "job-" + i;
+            jobs.add(i == 0 ? new JobStatus(name, name, true, 0, null) : new JobStatus(name, name, true, 1, "SUCCESS"));
+        }
+        return jobs;
+    }
+}
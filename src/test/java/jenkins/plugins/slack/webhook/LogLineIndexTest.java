@@ -0,0 +1,156 @@
+package jenkins.plugins.slack.webhook;
+
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.nio.charset.Charset;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import java.util.zip.GZIPOutputStream;
+
+import jenkins.plugins.slack.webhook.LogLineIndex.Window;
+
+
+
+
+public class LogLineIndexTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        LogLineIndex.clearCache();
+    }
+
+    @Test
+    public void windowsSpanCheckpoints() throws Exception {
+        File log = write("log", numbered(1, 100), false);
+        Window window = LogLineIndex.read(log, UTF_8, 9, 12, 10);
+        assertEquals(Arrays.asList("line 9", "line 10", "line 11", "line 12"), window.getLines());
+        assertEquals(9, window.getFrom());
+        assertEquals(12, window.getTo());
+        assertEquals(100, window.getTotal());
+
+        assertEquals(Arrays.asList("line 1"), LogLineIndex.read(log, UTF_8, 1, 1, 10).getLines());
+        assertEquals(Arrays.asList("line 91"), LogLineIndex.read(log, UTF_8, 91, 91, 10).getLines());
+    }
+
+    @Test
+    public void windowsStopAtTheEndOfTheLog() throws Exception {
+        File log = write("log", numbered(1, 20), false);
+        Window window = LogLineIndex.read(log, UTF_8, 19, 50, 10);
+        assertEquals(Arrays.asList("line 19", "line 20"), window.getLines());
+
+        Window past = LogLineIndex.read(log, UTF_8, 21, 30, 10);
+        assertTrue(past.getLines().isEmpty());
+        assertEquals(20, past.getTotal());
+    }
+
+    @Test
+    public void theIndexIsSavedBesideTheLogAndReused() throws Exception {
+        File log = write("log", numbered(1, 100), false);
+        LogLineIndex.read(log, UTF_8, 1, 1, 10);
+        File index = LogLineIndex.indexFile(log);
+        assertTrue(index.isFile());
+        assertEquals(32 + 8 * 11, index.length());
+
+        LogLineIndex.clearCache();
+        assertEquals(Arrays.asList("line 55"), LogLineIndex.read(log, UTF_8, 55, 55, 10).getLines());
+    }
+
+    @Test
+    public void grownLogsAreIndexedFromWhereTheyWere() throws Exception {
+        File log = write("log", numbered(1, 15) + "line 1", false);
+        assertEquals(16, LogLineIndex.read(log, UTF_8, 1, 1, 10).getTotal());
+
+        append(log, "6\n" + numbered(17, 40));
+        Window window = LogLineIndex.read(log, UTF_8, 16, 32, 10);
+        assertEquals("line 16", window.getLines().get(0));
+        assertEquals("line 32", window.getLines().get(16));
+        assertEquals(40, window.getTotal());
+    }
+
+    @Test
+    public void replacedLogsAreIndexedAgain() throws Exception {
+        File log = write("log", numbered(1, 50), false);
+        LogLineIndex.read(log, UTF_8, 1, 1, 10);
+        write("log", numbered(101, 110), false);
+        Window window = LogLineIndex.read(log, UTF_8, 3, 3, 10);
+        assertEquals(Arrays.asList("line 103"), window.getLines());
+        assertEquals(10, window.getTotal());
+    }
+
+    @Test
+    public void onlyLineFeedsEndLines() throws Exception {
+        File log = write("log", "a\r\nprogress 10%\rprogress 100%\nb\n", false);
+        Window window = LogLineIndex.read(log, UTF_8, 1, 3, 10);
+        assertEquals(Arrays.asList("a", "progress 10%\rprogress 100%", "b"), window.getLines());
+    }
+
+    @Test
+    public void compressedLogsAreReadThrough() throws Exception {
+        File log = write("log.gz", numbered(1, 100), true);
+        Window window = LogLineIndex.read(log, UTF_8, 50, 51, 10);
+        assertEquals(Arrays.asList("line 50", "line 51"), window.getLines());
+        assertEquals(100, window.getTotal());
+        assertTrue(!LogLineIndex.indexFile(log).exists());
+    }
+
+    @Test
+    public void missingLogsHaveNoLines() throws Exception {
+        Window window = LogLineIndex.read(new File(folder.getRoot(), "missing"), UTF_8, 1, 10, 10);
+        assertEquals(Collections.<String>emptyList(), window.getLines());
+        assertEquals(0, window.getTotal());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangesStartAtLineOne() throws Exception {
+        LogLineIndex.read(write("log", "a\n", false), UTF_8, 0, 1, 10);
+    }
+
+    private File write(String name, String content, boolean compressed) throws IOException {
+        File log = new File(folder.getRoot(), name);
+        OutputStream out = new FileOutputStream(log);
+        if (compressed)
+            out = new GZIPOutputStream(out);
+        try {
+            out.write(content.getBytes(UTF_8));
+        } finally {
+            out.close();
+        }
+        return log;
+    }
+
+    private static void append(File log, String content) throws IOException {
+        OutputStream out = new FileOutputStream(log, true);
+        try {
+            out.write(content.getBytes(UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String numbered(int first, int last) {
+        StringBuilder log = new StringBuilder();
+        for (int i = first; i <= last; i++) {
+            log.append("line ").append(i).append('\n');
+        }
+        return log.toString();
+    }
+}
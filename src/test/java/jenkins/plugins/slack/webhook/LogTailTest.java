@@ -0,0 +1,137 @@
+package jenkins.plugins.slack.webhook;
+
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.nio.charset.Charset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.util.zip.GZIPOutputStream;
+
+
+
+
+public class LogTailTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lastLinesAreReadFromTheEnd() throws Exception {
+        File log = log("log", numbered(100));
+        // blocks smaller than a line, so that lines span blocks
+        List<String> tail = LogTail.tail(log, UTF_8, 3, 4, Long.MAX_VALUE);
+        assertEquals(Arrays.asList(LogTail.TRUNCATED, "line 97", "line 98", "line 99"), tail);
+    }
+
+    @Test
+    public void shortLogsAreReadWhole() throws Exception {
+        File log = log("log", "first\r\nsecond\r\n");
+        assertEquals(Arrays.asList("first", "second"), LogTail.tail(log, UTF_8, 2, 8192, Long.MAX_VALUE));
+        assertEquals(Arrays.asList("first", "second"), LogTail.tail(log, UTF_8, 25, 8192, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void lastLineMayBeUnfinished() throws Exception {
+        File log = log("log", "a\nb\nc");
+        assertEquals(Arrays.asList(LogTail.TRUNCATED, "b", "c"), LogTail.tail(log, UTF_8, 2, 8192, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void loneCarriageReturnsDoNotEndLines() throws Exception {
+        StringBuilder progress = new StringBuilder();
+        for (int i = 0; i <= 100; i++) {
+            progress.append(i).append("%\r");
+        }
+        File log = log("log", "start\n" + progress + "\ndone\r\n");
+        List<String> tail = LogTail.tail(log, UTF_8, 2, 16, Long.MAX_VALUE);
+        assertEquals(3, tail.size());
+        assertEquals(LogTail.TRUNCATED, tail.get(0));
+        // only the carriage return before the line feed is left out
+        assertEquals(progress.substring(0, progress.length() - 1), tail.get(1));
+        assertEquals("done", tail.get(2));
+    }
+
+    @Test
+    public void multibyteCharactersAreDecoded() throws Exception {
+        File log = log("log", "début\n怒 ¶\nfin\n");
+        assertEquals(Arrays.asList(LogTail.TRUNCATED, "怒 ¶", "fin"), LogTail.tail(log, UTF_8, 2, 3, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void noMoreThanMaxBytesAreRead() throws Exception {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longLine.append("0123456789");
+        }
+        File log = log("log", "before\n" + longLine + "\nlast\n");
+        List<String> tail = LogTail.tail(log, UTF_8, 3, 64, 105);
+        // the long line is cut by the limit, and left out
+        assertEquals(Arrays.asList(LogTail.TRUNCATED, "last"), tail);
+    }
+
+    @Test
+    public void lineStartingAtTheLimitIsKept() throws Exception {
+        File log = log("log", "first\nsecond\nthird\n");
+        assertEquals(Arrays.asList(LogTail.TRUNCATED, "second", "third"), LogTail.tail(log, UTF_8, 5, 4, 13));
+    }
+
+    @Test
+    public void lastLineCutByTheLimitLeavesNothing() throws Exception {
+        File log = log("log", "before\n\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\n");
+        assertEquals(Arrays.asList(LogTail.TRUNCATED), LogTail.tail(log, UTF_8, 5, 4, 5));
+    }
+
+    @Test
+    public void emptyAndMissingLogsHaveNoLines() throws Exception {
+        assertTrue(LogTail.tail(log("log", ""), UTF_8, 25).isEmpty());
+        assertTrue(LogTail.tail(new File(folder.getRoot(), "missing"), UTF_8, 25).isEmpty());
+    }
+
+    @Test
+    public void compressedLogsAreReadThrough() throws Exception {
+        File log = new File(folder.getRoot(), "log.gz");
+        OutputStream out = new GZIPOutputStream(new FileOutputStream(log));
+        try {
+            out.write(numbered(100).getBytes(UTF_8));
+        } finally {
+            out.close();
+        }
+        assertEquals(Arrays.asList(LogTail.TRUNCATED, "line 98", "line 99"), LogTail.tail(log, UTF_8, 2));
+        assertEquals(100, LogTail.tail(log, UTF_8, 100).size());
+    }
+
+    private File log(String name, String content) throws IOException {
+        File log = new File(folder.getRoot(), name);
+        OutputStream out = new FileOutputStream(log);
+        try {
+            out.write(content.getBytes(UTF_8));
+        } finally {
+            out.close();
+        }
+        return log;
+    }
+
+    private static String numbered(int lines) {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            log.append("line ").append(i).append('\n');
+        }
+        return log.toString();
+    }
+}
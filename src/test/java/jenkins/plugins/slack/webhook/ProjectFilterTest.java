@@ -0,0 +1,82 @@
+package jenkins.plugins.slack.webhook;
+
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.PatternSyntaxException;
+
+import jenkins.plugins.slack.webhook.JobStatusIndex.JobStatus;
+
+
+
+
+public class ProjectFilterTest {
+
+    @Test
+    public void noFilterMatchesEverything() {
+        assertSame(ProjectFilter.ALL, ProjectFilter.parse(null));
+        assertSame(ProjectFilter.ALL, ProjectFilter.parse("  "));
+    }
+
+    @Test
+    public void textMatchesFullAndDisplayNames() {
+        ProjectFilter filter = ProjectFilter.parse("Deploy");
+        assertTrue(filter.matches(job("team/deploy-prod", "x")));
+        assertTrue(filter.matches(job("x", "Nightly deploy")));
+        assertFalse(filter.matches(job("team/build", "Build")));
+    }
+
+    @Test
+    public void globsStayWithinAFolderUnlessDoubled() {
+        ProjectFilter single = ProjectFilter.parse("team/*");
+        assertTrue(single.matches(job("Team/build")));
+        assertFalse(single.matches(job("team/sub/build")));
+
+        ProjectFilter doubled = ProjectFilter.parse("team/**");
+        assertTrue(doubled.matches(job("team/sub/build")));
+
+        ProjectFilter question = ProjectFilter.parse("job-?");
+        assertTrue(question.matches(job("job-1")));
+        assertFalse(question.matches(job("job-10")));
+    }
+
+    @Test
+    public void globsQuoteTheRestOfTheName() {
+        assertEquals("\\Qa.b\\E[^/]*\\Q(c)\\E", ProjectFilter.globToRegex("a.b*(c)"));
+        assertFalse(ProjectFilter.parse("a.b*").matches(job("axb")));
+    }
+
+    @Test
+    public void foldersMatchTheirContent() {
+        ProjectFilter filter = ProjectFilter.parse("team/");
+        assertTrue(filter.matches(job("team/build")));
+        assertTrue(filter.matches(job("TEAM/sub/build")));
+        assertFalse(filter.matches(job("team")));
+        assertFalse(filter.matches(job("teammate/build")));
+    }
+
+    @Test
+    public void regexesMatchPartOfTheFullName() {
+        ProjectFilter filter = ProjectFilter.parse("/-(prod|staging)$/");
+        assertTrue(filter.matches(job("team/deploy-prod")));
+        assertFalse(filter.matches(job("team/deploy-production")));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void invalidRegexesAreRejected() {
+        ProjectFilter.parse("/(unclosed/");
+    }
+
+    private static JobStatus job(String fullName) {
+        return job(fullName, fullName);
+    }
+
+    private static JobStatus job(String fullName, String displayName) {
+        return new JobStatus(fullName, displayName, true, 0, null);
+    }
+}
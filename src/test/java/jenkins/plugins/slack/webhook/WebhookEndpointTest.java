@@ -153,6 +153,38 @@ public class WebhookEndpointTest {
         assertThat(getSlackMessage(response).getText(), is("*Projects:*\n>*"+LONG_PROJECT_NAME+"*\n>*Last Build:* #1\n>*Status:* SUCCESS\n\n\n"));
     }
 
+    @Test
+    public void testUnknownCommandShowsHelp() throws Exception {
+        setConfigSettings();
+        data.add(new NameValuePair("text", "jenkins build everything"));
+        WebResponse response = makeRequest(data);
+        String help = getSlackMessage(response).getText();
+        assertThat(help, containsString("`build everything` _is an unknown command"));
+        assertThat(help, containsString("`jenkins list projects [filter] [page <n>]`"));
+        assertThat(help, containsString("`jenkins run <project_name>`"));
+    }
+
+    @Test
+    public void testSlashCommand() throws Exception {
+        setConfigSettings();
+        List<NameValuePair> slashCommand = new ArrayList<NameValuePair>();
+        slashCommand.add(new NameValuePair("token", "GOOD_TOKEN"));
+        slashCommand.add(new NameValuePair("command", "/jenkins"));
+        slashCommand.add(new NameValuePair("text", "list projects"));
+        WebResponse response = makeRequest(slashCommand);
+        assertThat(getSlackMessage(response).getText(), is("*Projects:*\n>_No projects found_"));
+    }
+
+    @Test
+    public void testSlashCommandAloneShowsHelp() throws Exception {
+        setConfigSettings();
+        List<NameValuePair> slashCommand = new ArrayList<NameValuePair>();
+        slashCommand.add(new NameValuePair("token", "GOOD_TOKEN"));
+        slashCommand.add(new NameValuePair("command", "/jenkins"));
+        WebResponse response = makeRequest(slashCommand);
+        assertThat(getSlackMessage(response).getText(), containsString("`/jenkins list projects [filter] [page <n>]`"));
+    }
+
     @Test
     public void testRunNonExistantProject() throws Exception {
         setConfigSettings();